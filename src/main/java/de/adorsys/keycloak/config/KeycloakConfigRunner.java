@@ -20,10 +20,12 @@
 
 package de.adorsys.keycloak.config;
 
-import de.adorsys.keycloak.config.model.KeycloakImport;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import de.adorsys.keycloak.config.service.metrics.MetricsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,7 +35,7 @@ import org.springframework.stereotype.Component;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Map;
+import java.util.stream.Stream;
 
 @Component
 public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerator {
@@ -42,16 +44,25 @@ public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerato
 
     private final KeycloakImportProvider keycloakImportProvider;
     private final RealmImportService realmImportService;
+    private final KeycloakProvider keycloakProvider;
+    private final DeadlineService deadlineService;
+    private final MetricsService metricsService;
 
     private int exitCode = 0;
 
     @Autowired
     public KeycloakConfigRunner(
             KeycloakImportProvider keycloakImportProvider,
-            RealmImportService realmImportService
+            RealmImportService realmImportService,
+            KeycloakProvider keycloakProvider,
+            DeadlineService deadlineService,
+            MetricsService metricsService
     ) {
         this.keycloakImportProvider = keycloakImportProvider;
         this.realmImportService = realmImportService;
+        this.keycloakProvider = keycloakProvider;
+        this.deadlineService = deadlineService;
+        this.metricsService = metricsService;
     }
 
     @Override
@@ -62,12 +73,11 @@ public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerato
     @Override
     public void run(String... args) {
         try {
-            KeycloakImport keycloakImport = keycloakImportProvider.get();
+            deadlineService.start();
 
-            Map<String, RealmImport> realmImports = keycloakImport.getRealmImports();
-
-            for (Map.Entry<String, RealmImport> realmImport : realmImports.entrySet()) {
-                realmImportService.doImport(realmImport.getValue());
+            // realm imports are parsed one by one, each one can be collected once it is imported
+            try (Stream<RealmImport> realmImports = keycloakImportProvider.get()) {
+                realmImports.forEach(realmImportService::doImport);
             }
         } catch (NullPointerException e) {
             throw e;
@@ -80,6 +90,9 @@ public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerato
                 throw e;
             }
         } finally {
+            keycloakProvider.close();
+            metricsService.report();
+
             long totalTime = System.currentTimeMillis() - START_TIME;
             String formattedTime = new SimpleDateFormat("mm:ss.SSS").format(new Date(totalTime));
             logger.info("keycloak-config-cli running in {}.", formattedTime);
@@ -26,6 +26,10 @@ public class InvalidImportException extends RuntimeException {
         super(message);
     }
 
+    public InvalidImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
     public InvalidImportException(Throwable cause) {
         super(cause);
     }
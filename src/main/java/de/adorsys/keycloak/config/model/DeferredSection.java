@@ -0,0 +1,36 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.model;
+
+/**
+ * A top-level section of an import which is kept as read from the file until the import uses it.
+ */
+public interface DeferredSection {
+    /**
+     * The section as read from the file, which Jackson writes as it is if the import is serialized.
+     */
+    Object raw();
+
+    /**
+     * Binds the section into the representations of the import.
+     */
+    void bindTo(RealmImport realmImport);
+}
@@ -20,14 +20,27 @@
 
 package de.adorsys.keycloak.config.model;
 
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
+import org.keycloak.common.util.MultivaluedHashMap;
 import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.ComponentExportRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Component
 public class RealmImport extends RealmRepresentation {
@@ -38,8 +51,85 @@ public class RealmImport extends RealmRepresentation {
 
     private String checksum;
 
+    private Supplier<UserIterator> streamedUsers;
+
+    private final Map<String, DeferredSection> deferredSections = new HashMap<>();
+
+    @Override
+    @JsonIgnore
+    public List<ClientRepresentation> getClients() {
+        bindSection("clients");
+        return super.getClients();
+    }
+
+    @Override
+    @JsonProperty("clients")
+    public void setClients(List<ClientRepresentation> clients) {
+        dropSection("clients");
+        super.setClients(clients);
+    }
+
+    @Override
+    @JsonIgnore
+    public RolesRepresentation getRoles() {
+        bindSection("roles");
+        return super.getRoles();
+    }
+
+    @Override
+    @JsonProperty("roles")
+    public void setRoles(RolesRepresentation roles) {
+        dropSection("roles");
+        super.setRoles(roles);
+    }
+
     @Override
+    @JsonIgnore
+    public List<GroupRepresentation> getGroups() {
+        bindSection("groups");
+        return super.getGroups();
+    }
+
+    @Override
+    @JsonProperty("groups")
+    public void setGroups(List<GroupRepresentation> groups) {
+        dropSection("groups");
+        super.setGroups(groups);
+    }
+
+    @Override
+    @JsonIgnore
+    public List<UserRepresentation> getUsers() {
+        bindSection("users");
+        return super.getUsers();
+    }
+
+    @Override
+    @JsonProperty("users")
+    public void setUsers(List<UserRepresentation> users) {
+        dropSection("users");
+        super.setUsers(users);
+    }
+
+    @Override
+    @JsonIgnore
+    public MultivaluedHashMap<String, ComponentExportRepresentation> getComponents() {
+        bindSection("components");
+        return super.getComponents();
+    }
+
+    @Override
+    @JsonProperty("components")
+    public void setComponents(MultivaluedHashMap<String, ComponentExportRepresentation> components) {
+        dropSection("components");
+        super.setComponents(components);
+    }
+
+    @Override
+    @JsonIgnore
     public List<AuthenticationFlowRepresentation> getAuthenticationFlows() {
+        bindSection("authenticationFlows");
+
         List<AuthenticationFlowRepresentation> result;
         if (authenticationFlowImports == null) {
             result = null;
@@ -52,9 +142,52 @@ public class RealmImport extends RealmRepresentation {
 
     @JsonSetter("authenticationFlows")
     public void setAuthenticationFlowImports(List<AuthenticationFlowImport> authenticationFlowImports) {
+        dropSection("authenticationFlows");
         this.authenticationFlowImports = authenticationFlowImports;
     }
 
+    /**
+     * The sections with getters which bind deferred sections. Deferred sections are serialized as read from the file,
+     * so serializing the import doesn't bind them.
+     */
+    @JsonAnyGetter
+    public synchronized Map<String, Object> getSections() {
+        Map<String, Object> sections = new LinkedHashMap<>();
+
+        putSection(sections, "clients", super.getClients());
+        putSection(sections, "roles", super.getRoles());
+        putSection(sections, "groups", super.getGroups());
+        putSection(sections, "users", super.getUsers());
+        putSection(sections, "components", super.getComponents());
+        putSection(sections, "authenticationFlows", authenticationFlowImports);
+
+        return sections;
+    }
+
+    private void putSection(Map<String, Object> sections, String name, Object section) {
+        DeferredSection deferredSection = deferredSections.get(name);
+        Object value = deferredSection != null ? deferredSection.raw() : section;
+
+        if (value != null) sections.put(name, value);
+    }
+
+    /**
+     * Keeps the section as read from the file, it is bound by its getter on first use.
+     */
+    public synchronized void deferSection(String name, DeferredSection section) {
+        deferredSections.put(name, section);
+    }
+
+    private synchronized void bindSection(String name) {
+        DeferredSection section = deferredSections.remove(name);
+
+        if (section != null) section.bindTo(this);
+    }
+
+    private synchronized void dropSection(String name) {
+        deferredSections.remove(name);
+    }
+
     public CustomImport getCustomImport() {
         return customImport;
     }
@@ -64,6 +197,35 @@ public class RealmImport extends RealmRepresentation {
         this.customImport = customImport;
     }
 
+    /**
+     * If the import has users, listed or streamed.
+     */
+    @JsonIgnore
+    public synchronized boolean hasUsers() {
+        return super.getUsers() != null || streamedUsers != null || deferredSections.containsKey("users");
+    }
+
+    /**
+     * The users of the import, streamed users are read again from the import file by each iterator.
+     */
+    public UserIterator iterateUsers() {
+        if (streamedUsers != null) {
+            return streamedUsers.get();
+        }
+
+        List<UserRepresentation> listedUsers = getUsers();
+        return UserIterator.of(listedUsers != null ? listedUsers : Collections.<UserRepresentation>emptyList());
+    }
+
+    /**
+     * Users read from the import file while iterating them instead of being held in {@link #getUsers()}.
+     */
+    @JsonIgnore
+    public void setStreamedUsers(Supplier<UserIterator> streamedUsers) {
+        this.users = null;
+        this.streamedUsers = streamedUsers;
+    }
+
     @JsonIgnore
     public String getChecksum() {
         return checksum;
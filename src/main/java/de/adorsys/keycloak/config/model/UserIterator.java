@@ -0,0 +1,55 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.model;
+
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Iterates the users of an import, which may be read from the import file while iterating. Has to be closed.
+ */
+public interface UserIterator extends Iterator<UserRepresentation>, AutoCloseable {
+    @Override
+    void close();
+
+    static UserIterator of(List<UserRepresentation> users) {
+        Iterator<UserRepresentation> iterator = users.iterator();
+
+        return new UserIterator() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public UserRepresentation next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+}
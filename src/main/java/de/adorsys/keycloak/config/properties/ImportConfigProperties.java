@@ -24,6 +24,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
@@ -33,6 +34,7 @@ import javax.validation.constraints.NotNull;
 public class ImportConfigProperties {
     public static final String REALM_CHECKSUM_ATTRIBUTE_PREFIX_KEY = "de.adorsys.keycloak.config.import-checksum-{0}";
     public static final String REALM_STATE_ATTRIBUTE_PREFIX_KEY = "de.adorsys.keycloak.config.state-{0}-{1}";
+    public static final String REALM_FINGERPRINTS_ATTRIBUTE_PREFIX_KEY = "de.adorsys.keycloak.config.import-fingerprints-{0}-{1}";
 
     @NotBlank
     private final String path;
@@ -52,15 +54,46 @@ public class ImportConfigProperties {
     @NotNull
     private final boolean parallel;
 
+    private final Duration deadline;
+
+    private final String metricsFile;
+
+    @NotNull
+    private final ImportChecksumMode checksumMode;
+
+    @NotNull
+    private final boolean streamUsers;
+
+    @NotNull
+    private final boolean deferSections;
+
     private final ImportManagedProperties managed;
 
-    public ImportConfigProperties(String path, boolean force, String cacheKey, boolean state, ImportFileType fileType, boolean parallel, ImportManagedProperties managed) {
+    public ImportConfigProperties(
+            String path,
+            boolean force,
+            String cacheKey,
+            boolean state,
+            ImportFileType fileType,
+            boolean parallel,
+            Duration deadline,
+            String metricsFile,
+            ImportChecksumMode checksumMode,
+            boolean streamUsers,
+            boolean deferSections,
+            ImportManagedProperties managed
+    ) {
         this.path = path;
         this.force = force;
         this.cacheKey = cacheKey;
         this.state = state;
         this.fileType = fileType;
         this.parallel = parallel;
+        this.deadline = deadline;
+        this.metricsFile = metricsFile;
+        this.checksumMode = checksumMode;
+        this.streamUsers = streamUsers;
+        this.deferSections = deferSections;
         this.managed = managed;
     }
 
@@ -92,11 +125,53 @@ public class ImportConfigProperties {
         return parallel;
     }
 
+    /**
+     * Max duration of the whole import run, no deadline if null
+     */
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Path of the OpenMetrics file with the metrics of the admin api calls, no file is written if null
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * What the import checksum is calculated of: the bytes of the file or the canonical form of the parsed import
+     */
+    public ImportChecksumMode getChecksumMode() {
+        return checksumMode;
+    }
+
+    /**
+     * If the users are read from the file only while they are imported instead of holding them in memory with the rest
+     * of the realm, only with the raw checksum mode
+     */
+    public boolean isStreamUsers() {
+        return streamUsers;
+    }
+
+    /**
+     * If clients, roles, groups, users, components and flows are bound only when they are imported, only with the raw
+     * checksum mode
+     */
+    public boolean isDeferSections() {
+        return deferSections;
+    }
+
     public enum ImportFileType {
         JSON,
         YAML
     }
 
+    public enum ImportChecksumMode {
+        RAW,
+        CANONICAL
+    }
+
     public static class ImportManagedProperties {
         @NotNull
         private final ImportManagedPropertiesValues requiredAction;
@@ -22,9 +22,13 @@ package de.adorsys.keycloak.config.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.Duration;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
@@ -55,7 +59,30 @@ public class KeycloakConfigProperties {
 
     private final KeycloakAvailabilityCheck availabilityCheck;
 
-    public KeycloakConfigProperties(String loginRealm, String clientId, String url, String user, String password, boolean sslVerify, KeycloakAvailabilityCheck availabilityCheck) {
+    private final KeycloakConnectionPool connectionPool;
+
+    private final KeycloakCompression compression;
+
+    private final KeycloakConcurrencyLimit concurrencyLimit;
+
+    private final KeycloakRetry retry;
+
+    private final KeycloakCircuitBreaker circuitBreaker;
+
+    public KeycloakConfigProperties(
+            String loginRealm,
+            String clientId,
+            String url,
+            String user,
+            String password,
+            boolean sslVerify,
+            KeycloakAvailabilityCheck availabilityCheck,
+            KeycloakConnectionPool connectionPool,
+            KeycloakCompression compression,
+            KeycloakConcurrencyLimit concurrencyLimit,
+            KeycloakRetry retry,
+            KeycloakCircuitBreaker circuitBreaker
+    ) {
         this.loginRealm = loginRealm;
         this.clientId = clientId;
         this.url = url;
@@ -63,6 +90,11 @@ public class KeycloakConfigProperties {
         this.password = password;
         this.sslVerify = sslVerify;
         this.availabilityCheck = availabilityCheck;
+        this.connectionPool = connectionPool;
+        this.compression = compression;
+        this.concurrencyLimit = concurrencyLimit;
+        this.retry = retry;
+        this.circuitBreaker = circuitBreaker;
     }
 
     public String getLoginRealm() {
@@ -93,6 +125,26 @@ public class KeycloakConfigProperties {
         return availabilityCheck;
     }
 
+    public KeycloakConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public KeycloakCompression getCompression() {
+        return compression;
+    }
+
+    public KeycloakConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public KeycloakRetry getRetry() {
+        return retry;
+    }
+
+    public KeycloakCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     public static class KeycloakAvailabilityCheck {
         @NotNull
         private final boolean enabled;
@@ -121,4 +173,227 @@ public class KeycloakConfigProperties {
             return retryDelay;
         }
     }
+
+    /**
+     * Sizing of the pooled http connections used by the admin client. If max-per-route or max-total is not set,
+     * the pool is sized by the effective import concurrency.
+     */
+    public static class KeycloakConnectionPool {
+        @Min(1)
+        private final Integer maxPerRoute;
+
+        @Min(1)
+        private final Integer maxTotal;
+
+        @NotNull
+        private final Duration keepAlive;
+
+        @NotNull
+        private final Duration idleTimeout;
+
+        public KeycloakConnectionPool(Integer maxPerRoute, Integer maxTotal, Duration keepAlive, Duration idleTimeout) {
+            this.maxPerRoute = maxPerRoute;
+            this.maxTotal = maxTotal;
+            this.keepAlive = keepAlive;
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Integer getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public Integer getMaxTotal() {
+            return maxTotal;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+    }
+
+    /**
+     * Gzip for the admin client traffic. Request compression requires a keycloak (or reverse proxy) which is able
+     * to decode gzip encoded request bodies.
+     */
+    public static class KeycloakCompression {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final boolean compressRequests;
+
+        @NotNull
+        private final DataSize requestMinSize;
+
+        public KeycloakCompression(boolean enabled, boolean compressRequests, DataSize requestMinSize) {
+            this.enabled = enabled;
+            this.compressRequests = compressRequests;
+            this.requestMinSize = requestMinSize;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public boolean isCompressRequests() {
+            return compressRequests;
+        }
+
+        public DataSize getRequestMinSize() {
+            return requestMinSize;
+        }
+    }
+
+    /**
+     * Adaptive limit of in-flight requests to keycloak. The limit starts with the import concurrency and moves between
+     * min-limit and max-limit. If max-limit is not set, the size of the connection pool is used.
+     */
+    public static class KeycloakConcurrencyLimit {
+        @NotNull
+        private final boolean enabled;
+
+        @Min(1)
+        private final int minLimit;
+
+        @Min(1)
+        private final Integer maxLimit;
+
+        @DecimalMin("0.1")
+        @DecimalMax("0.99")
+        private final double backoffRatio;
+
+        @NotNull
+        private final Duration latencyThreshold;
+
+        public KeycloakConcurrencyLimit(boolean enabled, int minLimit, Integer maxLimit, double backoffRatio, Duration latencyThreshold) {
+            this.enabled = enabled;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public Integer getMaxLimit() {
+            return maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+    }
+
+    /**
+     * Retry of idempotent reads on transient errors. The budget allows retries for the given ratio of all reads, plus
+     * a reserve for bursts.
+     */
+    public static class KeycloakRetry {
+        @NotNull
+        private final boolean enabled;
+
+        @Min(1)
+        private final int maxRetries;
+
+        @NotNull
+        private final Duration delay;
+
+        @NotNull
+        private final Duration maxDelay;
+
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private final double jitter;
+
+        @DecimalMin("0.0")
+        private final double budgetRatio;
+
+        @Min(0)
+        private final int budgetReserve;
+
+        public KeycloakRetry(boolean enabled, int maxRetries, Duration delay, Duration maxDelay, double jitter, double budgetRatio, int budgetReserve) {
+            this.enabled = enabled;
+            this.maxRetries = maxRetries;
+            this.delay = delay;
+            this.maxDelay = maxDelay;
+            this.jitter = jitter;
+            this.budgetRatio = budgetRatio;
+            this.budgetReserve = budgetReserve;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public Duration getDelay() {
+            return delay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public int getBudgetReserve() {
+            return budgetReserve;
+        }
+    }
+
+    /**
+     * Stops sending requests to keycloak after failure-threshold failures (5xx, IO errors) in a row. After the delay,
+     * requests are allowed again.
+     */
+    public static class KeycloakCircuitBreaker {
+        @NotNull
+        private final boolean enabled;
+
+        @Min(1)
+        private final int failureThreshold;
+
+        @NotNull
+        private final Duration delay;
+
+        public KeycloakCircuitBreaker(boolean enabled, int failureThreshold, Duration delay) {
+            this.enabled = enabled;
+            this.failureThreshold = failureThreshold;
+            this.delay = delay;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public Duration getDelay() {
+            return delay;
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An endpoint of the keycloak admin api, derived from the method and the path of a request. Ids and names in the path
+ * are replaced by placeholders, e.g. {@code GET /auth/admin/realms/master/clients/1234/roles} becomes
+ * {@code GET /clients/{id}/roles} of the entity type {@code clients}.
+ */
+public class AdminApiEndpoint {
+    private static final String ADMIN_REALMS_PATH = "/auth/admin/realms";
+    private static final String ID_PLACEHOLDER = "{id}";
+
+    /**
+     * Path segments of the admin api resources, see the @Path annotations of the keycloak admin client. All other
+     * segments are ids or names.
+     */
+    private static final Set<String> RESOURCE_SEGMENTS = new HashSet<>(Arrays.asList(
+            "add-models", "admin-events", "associatedPolicies", "attack-detection", "authentication",
+            "authenticator-providers", "authz", "available", "brute-force", "certificates", "children", "client",
+            "client-authenticator-providers", "client-scopes", "client-secret", "client-session-stats", "clients",
+            "clients-initial-access", "components", "composite", "composites", "config", "config-description",
+            "consents", "copy", "count", "credentials", "default-client-scopes", "default-default-client-scopes",
+            "default-groups", "default-optional-client-scopes", "dependentPolicies", "evaluate", "events", "executions",
+            "federated-identity", "flows", "form-action-providers", "form-providers", "groups", "identity-provider",
+            "import", "import-config", "instances", "keys", "lower-priority", "management", "mapper-types", "mappers",
+            "members", "models", "offline-sessions", "optional-client-scopes", "partial-export", "partial-import",
+            "permission", "permissions", "policies", "policy", "protocol", "protocol-mappers", "providers",
+            "raise-priority", "realm", "register-required-action", "required-actions", "resource", "resource-server",
+            "resources", "role-mappings", "roles", "roles-by-id", "scope", "scope-mappings", "scopes", "search",
+            "service-account-user", "sessions", "sub-component-types", "unregistered-required-actions", "users"
+    ));
+
+    private final String entityType;
+    private final String method;
+    private final String path;
+
+    public AdminApiEndpoint(String entityType, String method, String path) {
+        this.entityType = entityType;
+        this.method = method;
+        this.path = path;
+    }
+
+    public static AdminApiEndpoint of(String method, URI uri) {
+        String rawPath = uri.getPath() == null ? "" : uri.getPath();
+
+        if (!rawPath.startsWith(ADMIN_REALMS_PATH)) {
+            // token requests of the admin client
+            return new AdminApiEndpoint("auth", method, rawPath.replaceFirst("^/auth/realms/[^/]+", "/realms/{realm}"));
+        }
+
+        // the first segment is empty, the second one the realm
+        String[] segments = rawPath.substring(ADMIN_REALMS_PATH.length()).split("/");
+        if (segments.length < 3) {
+            return new AdminApiEndpoint("realm", method, "/");
+        }
+
+        StringBuilder path = new StringBuilder();
+        for (int i = 2; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) continue;
+
+            path.append('/').append(RESOURCE_SEGMENTS.contains(segment) ? segment : ID_PLACEHOLDER);
+        }
+
+        String entityType = RESOURCE_SEGMENTS.contains(segments[2]) ? segments[2] : "realm";
+
+        return new AdminApiEndpoint(entityType, method, path.toString());
+    }
+
+    /**
+     * The first resource below the realm, like {@code clients} or {@code authentication}. Requests to the realm
+     * itself are of the type {@code realm}.
+     */
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * The path relative to the realm with placeholders instead of ids and names
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * The method and the path, like {@code GET /clients/{id}/roles}
+     */
+    public String getOperation() {
+        return method + " " + path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AdminApiEndpoint that = (AdminApiEndpoint) o;
+        return entityType.equals(that.entityType) && method.equals(that.method) && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityType, method, path);
+    }
+
+    @Override
+    public String toString() {
+        return getOperation();
+    }
+}
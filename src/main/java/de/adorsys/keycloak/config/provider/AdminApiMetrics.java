@@ -0,0 +1,55 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the {@link EndpointMetrics} of all calls of the admin client during a run
+ */
+@Component
+public class AdminApiMetrics {
+    private final ConcurrentMap<AdminApiEndpoint, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    EndpointMetrics get(AdminApiEndpoint endpoint) {
+        return endpoints.computeIfAbsent(endpoint, EndpointMetrics::new);
+    }
+
+    /**
+     * All endpoints which were called, the slowest ones in total first
+     */
+    public List<EndpointMetrics> getEndpoints() {
+        Collection<EndpointMetrics> values = endpoints.values();
+
+        List<EndpointMetrics> result = new ArrayList<>(values);
+        result.sort(Comparator.comparingLong(EndpointMetrics::getLatencyNanos).reversed()
+                .thenComparing(metrics -> metrics.getEndpoint().getOperation()));
+
+        return result;
+    }
+}
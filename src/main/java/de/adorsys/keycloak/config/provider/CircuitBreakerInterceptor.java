@@ -0,0 +1,63 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.exception.KeycloakProviderException;
+import net.jodah.failsafe.CircuitBreaker;
+import net.jodah.failsafe.CircuitBreakerOpenException;
+import net.jodah.failsafe.Failsafe;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import java.text.MessageFormat;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Fails fast while the circuit breaker is open, instead of waiting for the socket timeout of each request to a
+ * degraded keycloak. Requests are not guarded until the breaker is armed, the availability check expects failures.
+ */
+class CircuitBreakerInterceptor implements InvocationInterceptor {
+    private final CircuitBreaker<ClientResponse> circuitBreaker;
+    private final BooleanSupplier armed;
+
+    CircuitBreakerInterceptor(CircuitBreaker<ClientResponse> circuitBreaker, BooleanSupplier armed) {
+        this.circuitBreaker = circuitBreaker;
+        this.armed = armed;
+    }
+
+    @Override
+    public ClientResponse intercept(ClientInvocation request, Function<ClientInvocation, ClientResponse> next) {
+        if (!armed.getAsBoolean()) {
+            return next.apply(request);
+        }
+
+        try {
+            return Failsafe.with(circuitBreaker).get(() -> next.apply(request));
+        } catch (CircuitBreakerOpenException e) {
+            throw new KeycloakProviderException(MessageFormat.format(
+                    "Keycloak is not available: {0} requests failed in a row, stop sending requests for {1} seconds",
+                    circuitBreaker.getFailureThreshold(),
+                    circuitBreaker.getRemainingDelay().getSeconds()
+            ));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import java.util.function.Function;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Wraps every call of the admin client into a permit of the {@link AdaptiveConcurrencyLimiter}. The permit is
+ * released as soon as keycloak answered, the latency is the time until the response headers are read.
+ */
+class ConcurrencyLimitingInterceptor implements InvocationInterceptor {
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    ConcurrencyLimitingInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ClientResponse intercept(ClientInvocation request, Function<ClientInvocation, ClientResponse> next) {
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while waiting for a concurrency permit", e);
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+
+        try {
+            ClientResponse response = next.apply(request);
+            dropped = isOverloaded(response.getStatus());
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    private static boolean isOverloaded(int status) {
+        return status >= 500 || status == Status.TOO_MANY_REQUESTS.getStatusCode();
+    }
+}
@@ -0,0 +1,45 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import java.util.function.Function;
+
+/**
+ * Rejects every request after the import deadline, this stops the remaining tasks of parallel imports, too.
+ */
+class DeadlineInterceptor implements InvocationInterceptor {
+    private final DeadlineService deadlineService;
+
+    DeadlineInterceptor(DeadlineService deadlineService) {
+        this.deadlineService = deadlineService;
+    }
+
+    @Override
+    public ClientResponse intercept(ClientInvocation request, Function<ClientInvocation, ClientResponse> next) {
+        deadlineService.check();
+
+        return next.apply(request);
+    }
+}
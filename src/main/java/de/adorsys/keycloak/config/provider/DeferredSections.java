@@ -0,0 +1,126 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.model.DeferredSection;
+import de.adorsys.keycloak.config.model.RealmImport;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses an import file with its heavy top-level sections kept as token buffers: only the rest of the realm is bound
+ * while the file is read, a section is bound into its representations when the import asks for it the first time.
+ */
+final class DeferredSections {
+    static final List<String> SECTIONS = Collections.unmodifiableList(Arrays.asList(
+            "clients", "roles", "groups", "users", "components", "authenticationFlows"
+    ));
+
+    private DeferredSections() {
+    }
+
+    /**
+     * @param sections the top-level sections to keep as token buffers
+     */
+    static RealmImport read(JsonParser parser, ObjectReader realmImportReader, Collection<String> sections) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            // not a realm, the reader reports it
+            return realmImportReader.readValue(parser);
+        }
+
+        TokenBuffer realm = new TokenBuffer(parser);
+        Map<String, TokenBuffer> deferred = new HashMap<>();
+
+        realm.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if (sections.contains(name) && value != JsonToken.VALUE_NULL) {
+                TokenBuffer section = new TokenBuffer(parser);
+                section.copyCurrentStructure(parser);
+                deferred.put(name, section);
+            } else {
+                realm.writeFieldName(name);
+                realm.copyCurrentStructure(parser);
+            }
+        }
+        realm.writeEndObject();
+
+        RealmImport realmImport = realmImportReader.readValue(realm.asParser());
+        deferred.forEach((name, section) -> realmImport.deferSection(name, new TokenBufferSection(name, section, realmImportReader)));
+
+        return realmImport;
+    }
+
+    private static class TokenBufferSection implements DeferredSection {
+        private final String name;
+        private final TokenBuffer section;
+        private final ObjectReader realmImportReader;
+
+        TokenBufferSection(String name, TokenBuffer section, ObjectReader realmImportReader) {
+            this.name = name;
+            this.section = section;
+            this.realmImportReader = realmImportReader;
+        }
+
+        @Override
+        public Object raw() {
+            return section;
+        }
+
+        /**
+         * Reads the section as the only property of the realm into the import, so the property is bound by the
+         * same setter and with the same features as the rest of the realm.
+         */
+        @Override
+        public void bindTo(RealmImport realmImport) {
+            TokenBuffer start = new TokenBuffer(section.getCodec(), false);
+            TokenBuffer end = new TokenBuffer(section.getCodec(), false);
+
+            try {
+                start.writeStartObject();
+                start.writeFieldName(name);
+                end.writeEndObject();
+
+                JsonParser parser = JsonParserSequence.createFlattened(false,
+                        JsonParserSequence.createFlattened(false, start.asParser(), section.asParser()),
+                        end.asParser());
+
+                realmImportReader.withValueToUpdate(realmImport).readValue(parser);
+            } catch (IOException e) {
+                throw new InvalidImportException("Cannot read the " + name + " of realm '" + realmImport.getRealm() + "': " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error counts, latency histogram and payload sizes of one {@link AdminApiEndpoint}. A call is a request
+ * of the import including its retries, the latency is the time until the response headers are read.
+ */
+public class EndpointMetrics {
+    /**
+     * Upper bounds of the latency buckets in seconds, the last bucket is +Inf
+     */
+    public static final double[] LATENCY_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final AdminApiEndpoint endpoint;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    EndpointMetrics(AdminApiEndpoint endpoint) {
+        this.endpoint = endpoint;
+
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param status the status code of the response, or -1 if there is no response
+     */
+    void record(long nanos, int status) {
+        calls.increment();
+        latencyNanos.add(nanos);
+        latencyBuckets[bucketOf(nanos)].increment();
+
+        if (status < 0 || status >= 500) {
+            errors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+    }
+
+    void addRequestBytes(long bytes) {
+        requestBytes.add(bytes);
+    }
+
+    void addResponseBytes(long bytes) {
+        responseBytes.add(bytes);
+    }
+
+    private static int bucketOf(long nanos) {
+        double seconds = nanos / (double) TimeUnit.SECONDS.toNanos(1);
+
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            if (seconds <= LATENCY_BUCKETS[i]) return i;
+        }
+
+        return LATENCY_BUCKETS.length;
+    }
+
+    public AdminApiEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Count of calls which failed with an IO error or a 5xx response
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Count of calls with a 4xx response, e.g. the 404 of a lookup for a missing entity
+     */
+    public long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos.sum();
+    }
+
+    /**
+     * Count of calls per bucket of {@link #LATENCY_BUCKETS}, not cumulative
+     */
+    public long[] getLatencyBuckets() {
+        long[] counts = new long[latencyBuckets.length];
+
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            counts[i] = latencyBuckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+}
@@ -0,0 +1,54 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Compresses request bodies like the realm representation on PUT. Small bodies are sent as they are, since gzip
+ * would not save anything there. Has to run before RequestContent, which derives the Content-Encoding and
+ * Transfer-Encoding headers from the entity.
+ */
+class GzipRequestInterceptor implements HttpRequestInterceptor {
+    private final long minSize;
+
+    GzipRequestInterceptor(long minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!(request instanceof HttpEntityEnclosingRequest)) return;
+
+        HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = entityRequest.getEntity();
+
+        if (entity == null || entity.getContentEncoding() != null) return;
+        if (entity.getContentLength() >= 0 && entity.getContentLength() < minSize) return;
+
+        entityRequest.setEntity(new GzipCompressingEntity(entity));
+    }
+}
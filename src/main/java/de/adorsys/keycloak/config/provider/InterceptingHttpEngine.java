@@ -0,0 +1,58 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.apache.http.client.HttpClient;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs each request of the admin client through a chain of {@link InvocationInterceptor}s, the first interceptor is
+ * the outermost one.
+ * <p>
+ * This has to be an ApacheHttpClient43Engine, since RESTEasy casts the engine of the client to it while sending a
+ * request. A decorating ClientHttpEngine fails with a ClassCastException.
+ */
+class InterceptingHttpEngine extends ApacheHttpClient43Engine {
+    private final List<InvocationInterceptor> interceptors;
+
+    InterceptingHttpEngine(HttpClient httpClient, List<InvocationInterceptor> interceptors) {
+        super(httpClient, true);
+        this.interceptors = new ArrayList<>(interceptors);
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation request) {
+        return invoke(request, 0);
+    }
+
+    private ClientResponse invoke(ClientInvocation request, int index) {
+        if (index == interceptors.size()) {
+            return super.invoke(request);
+        }
+
+        return interceptors.get(index).intercept(request, next -> invoke(next, index + 1));
+    }
+}
@@ -20,132 +20,294 @@
 
 package de.adorsys.keycloak.config.provider;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import de.adorsys.keycloak.config.exception.InvalidImportException;
 import de.adorsys.keycloak.config.model.KeycloakImport;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.checksum.ChecksumService;
 import de.adorsys.keycloak.config.util.ChecksumUtil;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component
 public class KeycloakImportProvider {
     private static final Logger logger = LoggerFactory.getLogger(KeycloakImportProvider.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Files read ahead of the import, enough to hash the next file while the current one is imported.
+     */
+    private static final int READ_AHEAD = 2;
+
     private final ImportConfigProperties importConfigProperties;
+    private final ChecksumService checksumService;
+
+    /**
+     * Configured once and shared by the reading threads, mappers and readers are thread-safe after configuration.
+     */
+    private final ObjectMapper objectMapper;
+    private final ObjectReader realmImportReader;
+
+    private final boolean streamUsers;
+    private final Collection<String> deferredSections;
 
     public KeycloakImportProvider(
-            ImportConfigProperties importConfigProperties
+            ImportConfigProperties importConfigProperties,
+            ChecksumService checksumService
     ) {
         this.importConfigProperties = importConfigProperties;
-    }
+        this.checksumService = checksumService;
+
+        this.objectMapper = createObjectMapper();
+        this.objectMapper.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+        // the canonical checksum is calculated of the whole import, including all users
+        boolean canonicalChecksum = importConfigProperties.getChecksumMode() == ImportConfigProperties.ImportChecksumMode.CANONICAL;
+        if (importConfigProperties.isStreamUsers() && canonicalChecksum) {
+            logger.warn("import.stream-users is ignored with import.checksum-mode=canonical, users are held in memory");
+        }
+        this.streamUsers = importConfigProperties.isStreamUsers() && !canonicalChecksum;
 
-    public KeycloakImport get() {
-        KeycloakImport keycloakImport;
+        // the canonical checksum binds all sections right after parsing
+        if (importConfigProperties.isDeferSections() && canonicalChecksum) {
+            logger.warn("import.defer-sections is ignored with import.checksum-mode=canonical, all sections are parsed");
+        }
+        this.deferredSections = importConfigProperties.isDeferSections() && !canonicalChecksum
+                ? DeferredSections.SECTIONS.stream().filter(section -> !streamUsers || !"users".equals(section)).collect(Collectors.toList())
+                : Collections.emptyList();
+
+        this.realmImportReader = (streamUsers ? StreamedUsers.skippingUsers(objectMapper) : objectMapper)
+                .readerFor(RealmImport.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
 
+    /**
+     * The import files at import.path, in the order of their names. The files are hashed and scanned for their realm
+     * name on a bounded pool two files ahead of the stream. Whether a file is imported already is checked only when
+     * the stream gets to it, after the files before it were imported, since they may target the same realm. Files
+     * which are imported already with the same checksum are skipped, the others are parsed then, so only one realm
+     * import is held in memory at a time. The stream should be closed if it is not consumed up to the end.
+     */
+    public Stream<RealmImport> get() {
         String importFilePath = importConfigProperties.getPath();
-        keycloakImport = readFromPath(importFilePath);
 
-        return keycloakImport;
+        return readFromPath(importFilePath);
     }
 
-    private KeycloakImport readFromPath(String path) {
+    private Stream<RealmImport> readFromPath(String path) {
         File configPath = new File(path);
 
         if (!configPath.exists() || !configPath.canRead()) {
             throw new InvalidImportException("import.path does not exists: " + configPath.getAbsolutePath());
         }
 
-        if (configPath.isDirectory()) {
-            return readRealmImportsFromDirectory(configPath);
-        }
+        List<File> importFiles = configPath.isDirectory()
+                ? listImportFiles(configPath)
+                : Collections.singletonList(configPath);
 
-        return readRealmImportFromFile(configPath);
+        ParallelFileReader<ImportFileProbe, Optional<RealmImport>> reader = new ParallelFileReader<>(
+                importFiles, this::probeImportFile, this::readIfNotImported, canProbe() ? READ_AHEAD : 1
+        );
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(reader::close)
+                .filter(Optional::isPresent)
+                .map(Optional::get);
     }
 
     public KeycloakImport readRealmImportsFromDirectory(File importFilesDirectory) {
-        Map<String, RealmImport> realmImports = Optional.ofNullable(importFilesDirectory.listFiles())
+        List<File> importFiles = listImportFiles(importFilesDirectory);
+        Map<String, RealmImport> realmImports = new HashMap<>();
+
+        try (ParallelFileReader<RealmImport, RealmImport> reader = new ParallelFileReader<>(
+                importFiles, importFile -> readRealmImport(importFile, null), Function.identity(), READ_AHEAD
+        )) {
+            for (File importFile : importFiles) {
+                realmImports.put(importFile.getName(), reader.next());
+            }
+        }
+
+        return new KeycloakImport(realmImports);
+    }
+
+    private List<File> listImportFiles(File importFilesDirectory) {
+        return Optional.ofNullable(importFilesDirectory.listFiles())
                 .map(Arrays::asList)
                 .orElse(Collections.emptyList())
                 .stream()
                 .filter(File::isFile)
-                .collect(Collectors.toMap(File::getName, this::readRealmImport));
+                .sorted(Comparator.comparing(File::getName))
+                .collect(Collectors.toList());
+    }
 
-        return new KeycloakImport(realmImports);
+    /**
+     * Runs on the pool: only hashes the file and scans it for the realm name, the file is not parsed. Files which
+     * cannot be skipped are not probed.
+     */
+    private ImportFileProbe probeImportFile(File importFile) {
+        if (!canProbe()) return new ImportFileProbe(importFile, null, null);
+
+        return new ImportFileProbe(importFile, readChecksum(importFile), readRealmName(importFile));
     }
 
-    private KeycloakImport readRealmImportFromFile(File importFile) {
-        Map<String, RealmImport> realmImports = new HashMap<>();
+    /**
+     * Runs on the consuming thread right before the file is imported, so the realm is checked as left by the import
+     * of the previous files. Only files which are not imported already are parsed.
+     */
+    private Optional<RealmImport> readIfNotImported(ImportFileProbe probe) {
+        if (probe.realm != null && checksumService.isImported(probe.realm, probe.checksum)) {
+            logger.info("Skipping file '{}', import checksum same: '{}'", probe.file.getAbsoluteFile(), probe.checksum);
+            return Optional.empty();
+        }
 
-        RealmImport realmImport = readRealmImport(importFile);
-        realmImports.put(importFile.getName(), realmImport);
+        logger.info("Importing file '{}'", probe.file.getAbsoluteFile());
+        return Optional.of(readRealmImport(probe.file, probe.checksum));
+    }
 
-        return new KeycloakImport(realmImports);
+    /**
+     * Only the raw checksum can be calculated without parsing the file, forced imports don't look at the checksum.
+     */
+    private boolean canProbe() {
+        return !importConfigProperties.isForce()
+                && importConfigProperties.getChecksumMode() == ImportConfigProperties.ImportChecksumMode.RAW;
+    }
+
+    private String readChecksum(File importFile) {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(importFile.toPath()), BUFFER_SIZE)) {
+            return DigestUtils.sha256Hex(inputStream);
+        } catch (IOException e) {
+            throw new InvalidImportException(e);
+        }
     }
 
-    private RealmImport readRealmImport(File importFile) {
-        logger.info("Importing file '{}'", importFile.getAbsoluteFile());
+    /**
+     * Scans the top-level properties of the file only until the realm name is found, nested objects are skipped.
+     */
+    private String readRealmName(File importFile) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(importFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
 
-        RealmImport realmImport = readToRealmImport(importFile);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String property = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
 
-        String checksum = calculateChecksum(importFile);
+                if ("realm".equals(property) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            throw new InvalidImportException(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the file once. Streamed users are skipped, they are read again when they are imported. Deferred sections
+     * are kept as read, they are bound when they are used. The checksum is calculated from the bytes while they are
+     * parsed. In canonical checksum mode, it is calculated from the parsed import. A checksum already calculated by
+     * the probe is taken as it is.
+     */
+    private RealmImport readRealmImport(File importFile, String knownChecksum) {
+        logger.debug("Reading file '{}'", importFile.getAbsoluteFile());
+
+        boolean canonicalChecksum = importConfigProperties.getChecksumMode() == ImportConfigProperties.ImportChecksumMode.CANONICAL;
+        boolean digest = !canonicalChecksum && knownChecksum == null;
+        MessageDigest messageDigest = DigestUtils.getSha256Digest();
+        RealmImport realmImport;
+
+        try (InputStream fileStream = new BufferedInputStream(Files.newInputStream(importFile.toPath()), BUFFER_SIZE);
+             InputStream inputStream = digest ? new DigestInputStream(fileStream, messageDigest) : fileStream) {
+            realmImport = readToRealmImport(inputStream);
+
+            // the parser stops at the end of the document, the checksum covers the whole file
+            if (digest) consumeRemaining(inputStream);
+        } catch (IOException e) {
+            throw new InvalidImportException(e);
+        }
+
+        String checksum;
+        if (canonicalChecksum) {
+            checksum = ChecksumUtil.canonicalChecksum(realmImport);
+        } else if (knownChecksum != null) {
+            checksum = knownChecksum;
+        } else {
+            checksum = Hex.encodeHexString(messageDigest.digest());
+        }
         realmImport.setChecksum(checksum);
 
+        if (streamUsers && realmImport.getUsers() != null) {
+            realmImport.setStreamedUsers(StreamedUsers.of(importFile, objectMapper));
+        }
+
         return realmImport;
     }
 
-    private RealmImport readToRealmImport(File importFile) {
-        RealmImport realmImport;
+    private RealmImport readToRealmImport(InputStream inputStream) throws IOException {
+        if (deferredSections.isEmpty()) {
+            return realmImportReader.readValue(inputStream);
+        }
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            return DeferredSections.read(parser, realmImportReader, deferredSections);
+        }
+    }
 
+    private ObjectMapper createObjectMapper() {
         ImportConfigProperties.ImportFileType fileType = importConfigProperties.getFileType();
 
-        ObjectMapper objectMapper;
         switch (fileType) {
             case YAML:
-                objectMapper = new ObjectMapper(new YAMLFactory());
-                break;
+                return new ObjectMapper(new YAMLFactory());
             case JSON:
-                objectMapper = new ObjectMapper();
-                break;
+                return new ObjectMapper();
             default:
                 throw new InvalidImportException("Unknown import file type :" + fileType.toString());
         }
+    }
 
-        objectMapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private void consumeRemaining(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
 
-        try {
-            realmImport = objectMapper.readValue(importFile, RealmImport.class);
-        } catch (IOException e) {
-            throw new InvalidImportException(e);
+        while (inputStream.read(buffer) != -1) {
+            // the bytes are only needed for the digest
         }
-
-        return realmImport;
-    }
-
-    private String calculateChecksum(File importFile) {
-        byte[] importFileInBytes = readRealmImportToBytes(importFile);
-        return ChecksumUtil.checksum(importFileInBytes);
     }
 
-    private byte[] readRealmImportToBytes(File importFile) {
-        byte[] importFileInBytes;
+    private static class ImportFileProbe {
+        private final File file;
+        private final String checksum;
+        private final String realm;
 
-        try {
-            importFileInBytes = Files.readAllBytes(importFile.toPath());
-        } catch (IOException e) {
-            throw new InvalidImportException(e);
+        ImportFileProbe(File file, String checksum, String realm) {
+            this.file = file;
+            this.checksum = checksum;
+            this.realm = realm;
         }
-
-        return importFileInBytes;
     }
 }
@@ -21,39 +21,90 @@
 package de.adorsys.keycloak.config.provider;
 
 import de.adorsys.keycloak.config.exception.KeycloakProviderException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCircuitBreaker;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCompression;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConcurrencyLimit;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConnectionPool;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakRetry;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import net.jodah.failsafe.CircuitBreaker;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
 import java.text.MessageFormat;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
 
 /**
- * This class exists cause we need to create a single keycloak instance or to close the keycloak before using a new one
- * to avoid a deadlock.
+ * Holds a single authenticated keycloak instance for the whole run. All realms are imported with the same admin
+ * session: the token manager of the admin client refreshes the access token when it expires and falls back to a new
+ * login if the refresh token is expired, too. The session is closed once by {@link #close()} after the last realm.
  */
 @Component
 public class KeycloakProvider {
     private static final Logger logger = LoggerFactory.getLogger(KeycloakProvider.class);
 
+    /**
+     * Pool size used by {@link Keycloak#getInstance} - never go below it
+     */
+    private static final int MIN_POOL_SIZE = 10;
+
     private final KeycloakConfigProperties properties;
+    private final ImportConfigProperties importConfigProperties;
+    private final DeadlineService deadlineService;
+    private final AdminApiMetrics metrics;
 
     private Keycloak keycloak;
-    private boolean isClosed = true;
+    private volatile boolean isClosed = true;
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private RetryBudget retryBudget;
+    private CircuitBreaker<ClientResponse> circuitBreaker;
 
     @Autowired
-    public KeycloakProvider(KeycloakConfigProperties properties) {
+    public KeycloakProvider(
+            KeycloakConfigProperties properties,
+            ImportConfigProperties importConfigProperties,
+            DeadlineService deadlineService,
+            AdminApiMetrics metrics
+    ) {
         this.properties = properties;
+        this.importConfigProperties = importConfigProperties;
+        this.deadlineService = deadlineService;
+        this.metrics = metrics;
     }
 
-    public Keycloak get() {
+    public synchronized Keycloak get() {
         if (keycloak == null || isClosed) {
             keycloak = createKeycloak(properties);
             isClosed = false;
@@ -62,14 +113,45 @@ public class KeycloakProvider {
         return keycloak;
     }
 
-    public void close() {
+    public synchronized void close() {
         if (!isClosed && keycloak != null) {
+            logger.debug("Close keycloak admin session");
             keycloak.close();
         }
 
+        if (concurrencyLimiter != null) {
+            logger.debug("Concurrency limit at close: {}", concurrencyLimiter.getLimit());
+        }
+
+        if (retryBudget != null && retryBudget.getRetries() > 0) {
+            logger.info("Retried {} of {} read requests to keycloak ({} failed after all retries, {} retries rejected by budget)",
+                    retryBudget.getRetries(), retryBudget.getRequests(), retryBudget.getExhaustedRequests(), retryBudget.getRejectedRetries());
+        }
+
         isClosed = true;
     }
 
+    /**
+     * The adaptive concurrency limiter of the admin client, if enabled and the client was created.
+     */
+    public synchronized Optional<AdaptiveConcurrencyLimiter> getConcurrencyLimiter() {
+        return Optional.ofNullable(concurrencyLimiter);
+    }
+
+    /**
+     * The retry budget of the admin client including the retry counts, if enabled and the client was created.
+     */
+    public synchronized Optional<RetryBudget> getRetryBudget() {
+        return Optional.ofNullable(retryBudget);
+    }
+
+    /**
+     * The state of the circuit breaker, if enabled and the client was created.
+     */
+    public synchronized Optional<CircuitBreaker.State> getCircuitBreakerState() {
+        return Optional.ofNullable(circuitBreaker).map(CircuitBreaker::getState);
+    }
+
     private Keycloak createKeycloak(
             KeycloakConfigProperties properties
     ) {
@@ -106,7 +188,12 @@ public class KeycloakProvider {
         try {
             return Failsafe.with(retryPolicy).get(() -> {
                 Keycloak obj = getKeycloak();
-                obj.realm(properties.getLoginRealm()).toRepresentation();
+                try {
+                    obj.realm(properties.getLoginRealm()).toRepresentation();
+                } catch (RuntimeException e) {
+                    obj.close();
+                    throw e;
+                }
                 return obj;
             });
         } catch (Exception e) {
@@ -116,17 +203,170 @@ public class KeycloakProvider {
     }
 
     private Keycloak getKeycloak() {
-        return Keycloak.getInstance(
-                buildUri(properties.getUrl()),
-                properties.getLoginRealm(),
-                properties.getUser(),
-                properties.getPassword(),
-                properties.getClientId(),
-                null,
-                null,
-                null,
-                !properties.isSslVerify(),
-                null
+        return KeycloakBuilder.builder()
+                .serverUrl(buildUri(properties.getUrl()))
+                .realm(properties.getLoginRealm())
+                .grantType(OAuth2Constants.PASSWORD)
+                .username(properties.getUser())
+                .password(properties.getPassword())
+                .clientId(properties.getClientId())
+                .resteasyClient(buildResteasyClient())
+                .build();
+    }
+
+    private ResteasyClient buildResteasyClient() {
+        KeycloakConnectionPool connectionPool = properties.getConnectionPool();
+
+        int concurrency = getImportConcurrency();
+        int maxPerRoute = connectionPool.getMaxPerRoute() != null
+                ? connectionPool.getMaxPerRoute()
+                : Math.max(concurrency, MIN_POOL_SIZE);
+        int maxTotal = connectionPool.getMaxTotal() != null ? connectionPool.getMaxTotal() : maxPerRoute;
+
+        logger.debug("Use http connection pool with {} connections per route and {} connections in total", maxPerRoute, maxTotal);
+
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+                .useSystemProperties()
+                .setMaxConnPerRoute(maxPerRoute)
+                .setMaxConnTotal(maxTotal)
+                .setKeepAliveStrategy(keepAliveStrategy(connectionPool.getKeepAlive()))
+                .evictExpiredConnections()
+                .evictIdleConnections(connectionPool.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS);
+
+        configureCompression(httpClientBuilder, properties.getCompression());
+
+        // requests after the gzip compression, responses before the decompression
+        PayloadSizeInterceptor payloadSizeInterceptor = new PayloadSizeInterceptor();
+        httpClientBuilder
+                .addInterceptorLast((HttpRequestInterceptor) payloadSizeInterceptor)
+                .addInterceptorFirst((HttpResponseInterceptor) payloadSizeInterceptor);
+
+        if (!properties.isSslVerify()) {
+            httpClientBuilder
+                    .setSSLContext(buildTrustAllSslContext())
+                    .setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+        }
+
+        CloseableHttpClient httpClient = httpClientBuilder.build();
+
+        // the outermost interceptor first: a call in the metrics includes its retries, every attempt of a retry is
+        // checked against the deadline and the circuit breaker and takes its own concurrency permit
+        List<InvocationInterceptor> interceptors = new ArrayList<>();
+        interceptors.add(new MetricsInterceptor(metrics));
+
+        KeycloakRetry retry = properties.getRetry();
+        if (retry.isEnabled()) {
+            if (retryBudget == null) {
+                retryBudget = new RetryBudget(retry.getBudgetRatio(), retry.getBudgetReserve());
+            }
+
+            interceptors.add(new RetryingInterceptor(
+                    retryBudget,
+                    retry.getMaxRetries(),
+                    retry.getDelay(),
+                    retry.getMaxDelay(),
+                    retry.getJitter()
+            ));
+        }
+
+        interceptors.add(new DeadlineInterceptor(deadlineService));
+
+        KeycloakCircuitBreaker circuitBreakerProperties = properties.getCircuitBreaker();
+        if (circuitBreakerProperties.isEnabled()) {
+            if (circuitBreaker == null) {
+                circuitBreaker = createCircuitBreaker(circuitBreakerProperties);
+            }
+
+            // armed once the session is established, the availability check expects failures
+            interceptors.add(new CircuitBreakerInterceptor(circuitBreaker, () -> !isClosed));
+        }
+
+        KeycloakConcurrencyLimit concurrencyLimit = properties.getConcurrencyLimit();
+        if (concurrencyLimit.isEnabled()) {
+            if (concurrencyLimiter == null) {
+                concurrencyLimiter = createConcurrencyLimiter(concurrencyLimit, concurrency, maxPerRoute);
+            }
+
+            interceptors.add(new ConcurrencyLimitingInterceptor(concurrencyLimiter));
+        }
+
+        return new ResteasyClientBuilder()
+                .httpEngine(new InterceptingHttpEngine(httpClient, interceptors))
+                .build();
+    }
+
+    private static CircuitBreaker<ClientResponse> createCircuitBreaker(KeycloakCircuitBreaker circuitBreakerProperties) {
+        return new CircuitBreaker<ClientResponse>()
+                .handle(ProcessingException.class)
+                .handleResultIf(response -> response != null && response.getStatus() >= 500)
+                .withFailureThreshold(circuitBreakerProperties.getFailureThreshold())
+                .withDelay(circuitBreakerProperties.getDelay())
+                .onOpen(() -> logger.warn("Keycloak failed {} times in a row, stop sending requests for {} seconds",
+                        circuitBreakerProperties.getFailureThreshold(), circuitBreakerProperties.getDelay().getSeconds()))
+                .onHalfOpen(() -> logger.info("Try to send requests to keycloak again"))
+                .onClose(() -> logger.info("Keycloak is available again"));
+    }
+
+    /**
+     * The limiter outlives a single client, a new admin session should not forget about an overloaded keycloak
+     */
+    private static AdaptiveConcurrencyLimiter createConcurrencyLimiter(KeycloakConcurrencyLimit concurrencyLimit, int concurrency, int poolSize) {
+        int maxLimit = concurrencyLimit.getMaxLimit() != null ? concurrencyLimit.getMaxLimit() : poolSize;
+        int minLimit = Math.min(concurrencyLimit.getMinLimit(), maxLimit);
+
+        logger.debug("Use adaptive concurrency limit starting at {} (min {}, max {})", concurrency, minLimit, maxLimit);
+
+        return new AdaptiveConcurrencyLimiter(
+                concurrency,
+                minLimit,
+                maxLimit,
+                concurrencyLimit.getBackoffRatio(),
+                concurrencyLimit.getLatencyThreshold()
         );
     }
+
+    /**
+     * The http client sends Accept-Encoding and decodes gzip responses as a stream by default. Keep the RESTEasy
+     * default (no compression) unless it's enabled.
+     */
+    private static void configureCompression(HttpClientBuilder httpClientBuilder, KeycloakCompression compression) {
+        if (!compression.isEnabled()) {
+            httpClientBuilder.disableContentCompression();
+            return;
+        }
+
+        if (compression.isCompressRequests()) {
+            httpClientBuilder.addInterceptorFirst(new GzipRequestInterceptor(compression.getRequestMinSize().toBytes()));
+        }
+    }
+
+    /**
+     * Each thread of a parallel stream may send a request at the same time: the workers of the common pool and the
+     * calling thread.
+     */
+    private int getImportConcurrency() {
+        return importConfigProperties.isParallel()
+                ? ForkJoinPool.getCommonPoolParallelism() + 1
+                : 1;
+    }
+
+    /**
+     * Honor the keep-alive header of the server, otherwise keep idle connections for the configured duration
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(Duration keepAlive) {
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : keepAlive.toMillis();
+        };
+    }
+
+    private static SSLContext buildTrustAllSslContext() {
+        try {
+            return new SSLContextBuilder()
+                    .loadTrustMaterial(null, TrustAllStrategy.INSTANCE)
+                    .build();
+        } catch (GeneralSecurityException e) {
+            throw new KeycloakProviderException(e);
+        }
+    }
 }
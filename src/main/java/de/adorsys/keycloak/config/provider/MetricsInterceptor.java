@@ -0,0 +1,71 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import java.util.function.Function;
+
+/**
+ * Records each call of the admin client in the {@link AdminApiMetrics}. As the outermost interceptor, a call includes
+ * its retries and the time spent waiting for a concurrency permit.
+ * <p>
+ * The endpoint of the running call is kept in a thread local, so the {@link PayloadSizeInterceptor} of the http
+ * client can add the payload sizes to it.
+ */
+class MetricsInterceptor implements InvocationInterceptor {
+    private static final ThreadLocal<EndpointMetrics> CURRENT = new ThreadLocal<>();
+
+    private final AdminApiMetrics metrics;
+
+    MetricsInterceptor(AdminApiMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    static EndpointMetrics current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public ClientResponse intercept(ClientInvocation request, Function<ClientInvocation, ClientResponse> next) {
+        EndpointMetrics endpointMetrics = metrics.get(AdminApiEndpoint.of(request.getMethod(), request.getUri()));
+        EndpointMetrics outer = CURRENT.get();
+
+        CURRENT.set(endpointMetrics);
+        long start = System.nanoTime();
+        int status = -1;
+
+        try {
+            ClientResponse response = next.apply(request);
+            status = response.getStatus();
+            return response;
+        } finally {
+            endpointMetrics.record(System.nanoTime() - start, status);
+
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+}
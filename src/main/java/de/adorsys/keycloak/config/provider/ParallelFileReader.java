@@ -0,0 +1,188 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Reads files on a bounded pool and returns the results in the order of the files. Only as many files as there are
+ * threads are read ahead of the consumer, so the results held in memory stay bounded. If a file cannot be read or
+ * finished, the remaining files are read as well and the errors of all files are thrown together.
+ * <p>
+ * The result of a read is finished by the consuming thread when it is returned, so the finisher sees everything the
+ * consumer did with the results of the previous files. Results which are not returned because of an error are not
+ * finished.
+ */
+class ParallelFileReader<R, T> implements Iterator<T>, AutoCloseable {
+    private final Iterator<File> files;
+    private final Function<File, R> reader;
+    private final Function<R, T> finisher;
+    private final int parallelism;
+    private final Deque<PendingRead<R>> pending = new ArrayDeque<>();
+
+    private ExecutorService executor;
+
+    ParallelFileReader(List<File> files, Function<File, R> reader, Function<R, T> finisher, int parallelism) {
+        this.files = files.iterator();
+        this.reader = reader;
+        this.finisher = finisher;
+        this.parallelism = Math.max(1, Math.min(parallelism, files.size()));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !pending.isEmpty() || files.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        readAhead();
+        PendingRead<R> read = pending.removeFirst();
+
+        T result;
+        try {
+            result = finisher.apply(read.await());
+        } catch (RuntimeException e) {
+            throw collectFailures(read.file, e);
+        }
+
+        if (!hasNext()) close();
+
+        return result;
+    }
+
+    private void readAhead() {
+        while (pending.size() < parallelism && files.hasNext()) {
+            File file = files.next();
+            pending.addLast(new PendingRead<>(file, CompletableFuture.supplyAsync(() -> reader.apply(file), getExecutor())));
+        }
+    }
+
+    private RuntimeException collectFailures(File failedFile, RuntimeException failure) {
+        List<File> failedFiles = new ArrayList<>();
+        List<RuntimeException> failures = new ArrayList<>();
+        failedFiles.add(failedFile);
+        failures.add(failure);
+
+        while (hasNext()) {
+            readAhead();
+            PendingRead<R> read = pending.removeFirst();
+
+            try {
+                read.await();
+            } catch (RuntimeException e) {
+                failedFiles.add(read.file);
+                failures.add(e);
+            }
+        }
+
+        close();
+
+        if (failures.size() == 1) return failure;
+
+        StringBuilder message = new StringBuilder()
+                .append(failures.size()).append(" import files could not be read:");
+
+        for (int i = 0; i < failures.size(); i++) {
+            message.append("\n - ").append(failedFiles.get(i).getName()).append(": ").append(failures.get(i).getMessage());
+        }
+
+        InvalidImportException exception = new InvalidImportException(message.toString(), failure);
+        for (RuntimeException e : failures.subList(1, failures.size())) {
+            exception.addSuppressed(e);
+        }
+
+        return exception;
+    }
+
+    private Executor getExecutor() {
+        // a single file is read by the calling thread
+        if (parallelism == 1) return Runnable::run;
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism, new ReaderThreadFactory());
+        }
+
+        return executor;
+    }
+
+    /**
+     * Stops reading ahead, needed only if the results are not consumed up to the end.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static class PendingRead<T> {
+        private final File file;
+        private final CompletableFuture<T> result;
+
+        PendingRead(File file, CompletableFuture<T> result) {
+            this.file = file;
+            this.result = result;
+        }
+
+        T await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+    }
+
+    private static class ReaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "import-reader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
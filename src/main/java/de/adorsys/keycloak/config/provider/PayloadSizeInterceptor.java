@@ -0,0 +1,111 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes of request and response bodies as sent over the wire, i.e. compressed if gzip is enabled. Has to
+ * run after the GzipRequestInterceptor for requests and before the decompression of responses. Response bodies are
+ * counted while they are read, which is after the call returned to the {@link MetricsInterceptor}.
+ */
+class PayloadSizeInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        EndpointMetrics metrics = MetricsInterceptor.current();
+        if (metrics == null || !(request instanceof HttpEntityEnclosingRequest)) return;
+
+        HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = entityRequest.getEntity();
+        if (entity == null) return;
+
+        entityRequest.setEntity(new HttpEntityWrapper(entity) {
+            @Override
+            public void writeTo(OutputStream outStream) throws IOException {
+                super.writeTo(new FilterOutputStream(outStream) {
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                        metrics.addRequestBytes(1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                        metrics.addRequestBytes(len);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        EndpointMetrics metrics = MetricsInterceptor.current();
+        HttpEntity entity = response.getEntity();
+        if (metrics == null || entity == null) return;
+
+        response.setEntity(new HttpEntityWrapper(entity) {
+            @Override
+            public InputStream getContent() throws IOException {
+                return new FilterInputStream(super.getContent()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) metrics.addResponseBytes(1);
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int count = super.read(b, off, len);
+                        if (count > 0) metrics.addResponseBytes(count);
+                        return count;
+                    }
+                };
+            }
+
+            @Override
+            public void writeTo(OutputStream outStream) throws IOException {
+                try (InputStream in = getContent()) {
+                    byte[] buffer = new byte[8192];
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        outStream.write(buffer, 0, count);
+                    }
+                }
+            }
+        });
+    }
+}
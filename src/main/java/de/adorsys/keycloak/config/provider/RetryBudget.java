@@ -0,0 +1,93 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+/**
+ * Caps the retries to a ratio of the retryable requests, e.g. a ratio of 0.1 allows one retry per ten requests. The
+ * reserve is the burst of retries which is allowed at once, it's available from the start. Once keycloak is down, the
+ * budget is drained quickly and requests fail instead of multiplying the load.
+ * <p>
+ * Counts the retries, so the costs of the transient error handling are visible at the end of a run.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double maxBalance;
+
+    private double balance;
+
+    private long requests = 0;
+    private long retries = 0;
+    private long rejectedRetries = 0;
+    private long exhaustedRequests = 0;
+
+    public RetryBudget(double ratio, int reserve) {
+        this.ratio = ratio;
+        this.balance = reserve;
+        this.maxBalance = Math.max(reserve, 1);
+    }
+
+    synchronized void onRequest() {
+        requests++;
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    synchronized boolean canRetry() {
+        return balance >= 1;
+    }
+
+    synchronized void onRetryRejected() {
+        rejectedRetries++;
+    }
+
+    synchronized void onRetry() {
+        retries++;
+        balance = Math.max(0, balance - 1);
+    }
+
+    synchronized void onRetriesExceeded() {
+        exhaustedRequests++;
+    }
+
+    /**
+     * Count of retryable requests, without their retries
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Count of retries which were not done, because the budget was drained
+     */
+    public synchronized long getRejectedRetries() {
+        return rejectedRetries;
+    }
+
+    /**
+     * Count of requests which failed even after all retries
+     */
+    public synchronized long getExhaustedRequests() {
+        return exhaustedRequests;
+    }
+}
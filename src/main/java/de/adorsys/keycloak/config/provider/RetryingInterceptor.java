@@ -0,0 +1,117 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import net.jodah.failsafe.Failsafe;
+import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.event.ExecutionAttemptedEvent;
+import net.jodah.failsafe.event.ExecutionCompletedEvent;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Function;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Retries idempotent reads (GET, HEAD and the partial export, which is a read over POST) of the admin client on IO
+ * errors and on 502, 503 and 504 with an exponential backoff and jitter. Other requests, especially the POSTs which
+ * create entities, are never retried.
+ */
+class RetryingInterceptor implements InvocationInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(RetryingInterceptor.class);
+
+    private static final String PARTIAL_EXPORT_PATH = "/partial-export";
+
+    private final RetryBudget retryBudget;
+    private final int maxRetries;
+    private final RetryPolicy<ClientResponse> retryPolicy;
+
+    RetryingInterceptor(RetryBudget retryBudget, int maxRetries, Duration delay, Duration maxDelay, double jitter) {
+        this.retryBudget = retryBudget;
+        this.maxRetries = maxRetries;
+        this.retryPolicy = new RetryPolicy<ClientResponse>()
+                .handle(ProcessingException.class)
+                .handleResultIf(response -> response != null && isTransientStatus(response.getStatus()))
+                .withBackoff(delay.toMillis(), maxDelay.toMillis(), ChronoUnit.MILLIS)
+                .withJitter(jitter)
+                .withMaxRetries(maxRetries)
+                .abortIf((response, failure) -> !retryBudget.canRetry())
+                .onAbort(this::onAbort)
+                .onRetry(this::onRetry)
+                .onRetriesExceeded(e -> retryBudget.onRetriesExceeded());
+    }
+
+    @Override
+    public ClientResponse intercept(ClientInvocation request, Function<ClientInvocation, ClientResponse> next) {
+        if (!isIdempotentRead(request)) {
+            return next.apply(request);
+        }
+
+        retryBudget.onRequest();
+
+        return Failsafe.with(retryPolicy).get(() -> next.apply(request));
+    }
+
+    private void onRetry(ExecutionAttemptedEvent<ClientResponse> event) {
+        retryBudget.onRetry();
+
+        ClientResponse lastResponse = event.getLastResult();
+        if (lastResponse != null) {
+            logger.debug("Retry #{} after status {}", event.getAttemptCount(), lastResponse.getStatus());
+            // release the connection of the discarded response
+            lastResponse.close();
+        } else {
+            logger.debug("Retry #{} after failure: {}", event.getAttemptCount(), event.getLastFailure().getMessage());
+        }
+    }
+
+    /**
+     * The budget is checked after every failed attempt, also after the last one. Only an abort before the last attempt
+     * rejected a retry, after the last attempt the retries were exhausted anyway.
+     */
+    private void onAbort(ExecutionCompletedEvent<ClientResponse> event) {
+        if (event.getAttemptCount() > maxRetries) {
+            retryBudget.onRetriesExceeded();
+        } else {
+            retryBudget.onRetryRejected();
+        }
+    }
+
+    private static boolean isIdempotentRead(ClientInvocation request) {
+        String method = request.getMethod();
+
+        return HttpMethod.GET.equals(method)
+                || HttpMethod.HEAD.equals(method)
+                || HttpMethod.POST.equals(method) && request.getUri().getPath().endsWith(PARTIAL_EXPORT_PATH);
+    }
+
+    private static boolean isTransientStatus(int status) {
+        return status == Status.BAD_GATEWAY.getStatusCode()
+                || status == Status.SERVICE_UNAVAILABLE.getStatusCode()
+                || status == Status.GATEWAY_TIMEOUT.getStatusCode();
+    }
+}
@@ -0,0 +1,161 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.model.UserIterator;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Reads the users of an import file apart from the rest of the realm: the realm is parsed with the users array
+ * skipped, the users are read later one at a time by a parser moved to the users array of the file.
+ */
+final class StreamedUsers {
+    private StreamedUsers() {
+    }
+
+    /**
+     * A copy of the mapper which skips the users array. The users of the parsed realm are an empty list if the file
+     * has a users array, null otherwise.
+     */
+    static ObjectMapper skippingUsers(ObjectMapper objectMapper) {
+        return objectMapper.copy().addMixIn(RealmRepresentation.class, SkippedUsersMixIn.class);
+    }
+
+    static Supplier<UserIterator> of(File importFile, ObjectMapper objectMapper) {
+        ObjectReader userReader = objectMapper.readerFor(UserRepresentation.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        return () -> new JsonUserIterator(importFile, objectMapper, userReader);
+    }
+
+    abstract static class SkippedUsersMixIn {
+        @JsonDeserialize(using = SkippedUsersDeserializer.class)
+        abstract void setUsers(List<UserRepresentation> users);
+    }
+
+    static class SkippedUsersDeserializer extends JsonDeserializer<List<UserRepresentation>> {
+        @Override
+        public List<UserRepresentation> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            parser.skipChildren();
+            return Collections.emptyList();
+        }
+    }
+
+    private static class JsonUserIterator implements UserIterator {
+        private final File importFile;
+        private final ObjectReader userReader;
+        private final JsonParser parser;
+
+        private UserRepresentation next;
+        private boolean done;
+
+        JsonUserIterator(File importFile, ObjectMapper objectMapper, ObjectReader userReader) {
+            this.importFile = importFile;
+            this.userReader = userReader;
+
+            try {
+                this.parser = objectMapper.getFactory().createParser(importFile);
+            } catch (IOException e) {
+                throw new InvalidImportException(e);
+            }
+
+            moveToUsers();
+        }
+
+        private void moveToUsers() {
+            try {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String property = parser.getCurrentName();
+                        JsonToken value = parser.nextToken();
+
+                        if ("users".equals(property) && value == JsonToken.START_ARRAY) return;
+
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                throw fail(e);
+            }
+
+            close();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) {
+                        close();
+                    } else {
+                        next = userReader.readValue(parser);
+                    }
+                } catch (IOException e) {
+                    throw fail(e);
+                }
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public UserRepresentation next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            UserRepresentation user = next;
+            next = null;
+            return user;
+        }
+
+        private InvalidImportException fail(IOException e) {
+            close();
+            return new InvalidImportException("Cannot read the users of file '" + importFile.getName() + "': " + e.getMessage(), e);
+        }
+
+        @Override
+        public void close() {
+            done = true;
+
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // the file was only read
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.util.ResponseUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Runs the writes of the async repository methods. With import.parallel, writes are sent by a pool of the size of
+ * the import concurrency without waiting for them, the caller awaits them with a {@link WriteBatch}. Otherwise the
+ * writes are sent right away by the calling thread and fail fast as before.
+ */
+@Component
+public class AsyncWriteExecutor {
+    private final boolean async;
+
+    private ExecutorService executor;
+
+    @Autowired
+    public AsyncWriteExecutor(ImportConfigProperties importConfigProperties) {
+        this.async = importConfigProperties.isParallel();
+    }
+
+    /**
+     * @param description what the write does, used as message if the write fails
+     */
+    public CompletableFuture<Void> run(String description, Runnable write) {
+        if (!async) {
+            write.run();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException error) {
+                throw new ImportProcessingException(description + ": " + getErrorMessage(error), error);
+            }
+        }, getExecutor());
+    }
+
+    private static String getErrorMessage(RuntimeException error) {
+        if (error instanceof WebApplicationException) {
+            try {
+                return ResponseUtil.getErrorMessage((WebApplicationException) error);
+            } catch (RuntimeException e) {
+                // the response body was consumed already
+                return error.getMessage();
+            }
+        }
+
+        return error.getMessage();
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(ForkJoinPool.getCommonPoolParallelism() + 1, new WriteThreadFactory());
+        }
+
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static class WriteThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "keycloak-write-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -22,6 +22,7 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.resource.AuthenticationManagementResource;
 import org.keycloak.admin.client.resource.RealmResource;
@@ -43,22 +44,32 @@ public class AuthenticationFlowRepository {
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationFlowRepository.class);
 
     private final RealmRepository realmRepository;
+    private final RealmSnapshotRepository realmSnapshotRepository;
+    private final ExecutionTreeCache executionTreeCache;
 
     @Autowired
-    public AuthenticationFlowRepository(RealmRepository realmRepository) {
+    public AuthenticationFlowRepository(
+            RealmRepository realmRepository,
+            RealmSnapshotRepository realmSnapshotRepository,
+            ExecutionTreeCache executionTreeCache
+    ) {
         this.realmRepository = realmRepository;
+        this.realmSnapshotRepository = realmSnapshotRepository;
+        this.executionTreeCache = executionTreeCache;
     }
 
     public Optional<AuthenticationFlowRepresentation> tryToGetFlow(String realm, String alias) {
         logger.trace("Try to get top-level-flow '{}' from realm '{}'", alias, realm);
 
-        // with `AuthenticationManagementResource.getFlows()` keycloak is NOT returning all so-called top-level-flows so
-        // we need a partial export
-        RealmRepresentation realmExport = realmRepository.partialExport(realm, false, false);
-        return realmExport.getAuthenticationFlows()
-                .stream()
-                .filter(flow -> flow.getAlias().equals(alias))
-                .findFirst();
+        return realmSnapshotRepository.lookup(realm, Section.AUTHENTICATION_FLOWS, alias, () -> {
+            // with `AuthenticationManagementResource.getFlows()` keycloak is NOT returning all so-called top-level-flows so
+            // we need a partial export
+            RealmRepresentation realmExport = realmRepository.partialExport(realm, false, false);
+            return realmExport.getAuthenticationFlows()
+                    .stream()
+                    .filter(flow -> flow.getAlias().equals(alias))
+                    .findFirst();
+        });
     }
 
     public AuthenticationFlowRepresentation getFlow(String realm, String alias) {
@@ -77,10 +88,11 @@ public class AuthenticationFlowRepository {
     public void createTopLevelFlow(String realm, AuthenticationFlowRepresentation topLevelFlowToImport) {
         logger.trace("Create top-level-flow '{}' in realm '{}'", topLevelFlowToImport.getAlias(), realm);
 
-        AuthenticationManagementResource flowsResource = getFlows(realm);
+        AuthenticationManagementResource flowsResource = getFlowsForUpdate(realm);
         try {
             Response response = flowsResource.createFlow(topLevelFlowToImport);
             ResponseUtil.validate(response);
+            executionTreeCache.invalidate(realm, topLevelFlowToImport.getAlias());
         } catch (WebApplicationException error) {
             String errorMessage = ResponseUtil.getErrorMessage(error);
 
@@ -101,10 +113,11 @@ public class AuthenticationFlowRepository {
     }
 
     public void deleteTopLevelFlow(String realm, String topLevelFlowId) {
-        AuthenticationManagementResource flowsResource = getFlows(realm);
+        AuthenticationManagementResource flowsResource = getFlowsForUpdate(realm);
 
         try {
             flowsResource.deleteFlow(topLevelFlowId);
+            executionTreeCache.invalidate(realm);
         } catch (ClientErrorException e) {
             throw new ImportProcessingException("Error occurred while trying to delete top-level-flow by id '" + topLevelFlowId + "' in realm '" + realm + "'", e);
         }
@@ -121,6 +134,15 @@ public class AuthenticationFlowRepository {
         return flows;
     }
 
+    /**
+     * A flow representation contains its executions and their configs, so every write through the flows-resource
+     * makes all snapshot flows stale
+     */
+    AuthenticationManagementResource getFlowsForUpdate(String realm) {
+        realmSnapshotRepository.invalidate(realm, Section.AUTHENTICATION_FLOWS);
+        return getFlows(realm);
+    }
+
     public List<AuthenticationFlowRepresentation> getTopLevelFlows(String realm) {
         AuthenticationManagementResource flowsResource = getFlows(realm);
         return flowsResource.getFlows();
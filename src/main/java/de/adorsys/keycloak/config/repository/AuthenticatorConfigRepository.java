@@ -33,14 +33,17 @@ import java.util.List;
 public class AuthenticatorConfigRepository {
     private final AuthenticationFlowRepository authenticationFlowRepository;
     private final RealmRepository realmRepository;
+    private final ExecutionTreeCache executionTreeCache;
 
     @Autowired
     public AuthenticatorConfigRepository(
             AuthenticationFlowRepository authenticationFlowRepository,
-            RealmRepository realmRepository
+            RealmRepository realmRepository,
+            ExecutionTreeCache executionTreeCache
     ) {
         this.authenticationFlowRepository = authenticationFlowRepository;
         this.realmRepository = realmRepository;
+        this.executionTreeCache = executionTreeCache;
     }
 
     public AuthenticatorConfigRepresentation getAuthenticatorConfig(String realm, String alias) {
@@ -53,8 +56,9 @@ public class AuthenticatorConfigRepository {
     }
 
     public void deletedAuthenticatorConfig(String realm, String id) {
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
         flowsResource.removeAuthenticatorConfig(id);
+        executionTreeCache.invalidateAuthenticatorConfig(realm, id);
     }
 
     public void createAuthenticatorConfig(
@@ -62,16 +66,18 @@ public class AuthenticatorConfigRepository {
             String executionId,
             AuthenticatorConfigRepresentation authenticatorConfigRepresentation
     ) {
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
         flowsResource.newExecutionConfig(executionId, authenticatorConfigRepresentation);
+        executionTreeCache.invalidateExecution(realm, executionId);
     }
 
     public void updateAuthenticatorConfig(
             String realm,
             AuthenticatorConfigRepresentation authenticatorConfigRepresentation
     ) {
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
         flowsResource.updateAuthenticatorConfig(authenticatorConfigRepresentation.getId(), authenticatorConfigRepresentation);
+        executionTreeCache.invalidateAuthenticatorConfig(realm, authenticatorConfigRepresentation.getId());
     }
 
     public List<AuthenticatorConfigRepresentation> getAll(String realm) {
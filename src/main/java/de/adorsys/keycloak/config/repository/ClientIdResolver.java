@@ -0,0 +1,85 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the clientId of a client to its internal id. The ids of a realm are listed once, the first time they are
+ * needed, and clients created by {@link ClientRepository} are added. A clientId that is not known yet, e.g. of a client
+ * keycloak created along with the realm, is looked up on the server; only found ids are remembered.
+ * <p>
+ * Clients are never deleted by an import, so an id stays valid for the whole run.
+ */
+@Component
+public class ClientIdResolver {
+    private final RealmRepository realmRepository;
+
+    private final ConcurrentMap<String, Map<String, String>> idsByRealm = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ClientIdResolver(RealmRepository realmRepository) {
+        this.realmRepository = realmRepository;
+    }
+
+    public Optional<String> tryToResolve(String realm, String clientId) {
+        // concurrent first callers of a realm wait for the one listing
+        Map<String, String> ids = idsByRealm.computeIfAbsent(realm, this::listIds);
+
+        String id = ids.get(clientId);
+        if (id != null) return Optional.of(id);
+
+        Optional<String> maybeId = realmRepository.loadRealm(realm)
+                .clients()
+                .findByClientId(clientId)
+                .stream()
+                .findFirst()
+                .map(ClientRepresentation::getId);
+
+        maybeId.ifPresent(foundId -> ids.put(clientId, foundId));
+        return maybeId;
+    }
+
+    /**
+     * A realm that is not listed yet will list the client along with the others
+     */
+    void add(String realm, String clientId, String id) {
+        Map<String, String> ids = idsByRealm.get(realm);
+        if (ids != null) ids.put(clientId, id);
+    }
+
+    private Map<String, String> listIds(String realm) {
+        Map<String, String> ids = new ConcurrentHashMap<>();
+
+        for (ClientRepresentation client : realmRepository.loadRealm(realm).clients().findAll()) {
+            ids.put(client.getClientId(), client.getId());
+        }
+
+        return ids;
+    }
+}
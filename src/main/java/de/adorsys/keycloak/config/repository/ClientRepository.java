@@ -22,6 +22,7 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.resource.ClientResource;
 import org.keycloak.admin.client.resource.ClientsResource;
@@ -40,6 +41,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
@@ -48,33 +50,44 @@ import javax.ws.rs.core.Response;
 public class ClientRepository {
 
     private final RealmRepository realmRepository;
+    private final SingleFlight singleFlight;
+    private final AsyncWriteExecutor asyncWriteExecutor;
+    private final RealmSnapshotRepository realmSnapshotRepository;
+    private final ClientIdResolver clientIdResolver;
 
     @Autowired
-    public ClientRepository(RealmRepository realmRepository) {
+    public ClientRepository(
+            RealmRepository realmRepository,
+            SingleFlight singleFlight,
+            AsyncWriteExecutor asyncWriteExecutor,
+            RealmSnapshotRepository realmSnapshotRepository,
+            ClientIdResolver clientIdResolver
+    ) {
         this.realmRepository = realmRepository;
+        this.singleFlight = singleFlight;
+        this.asyncWriteExecutor = asyncWriteExecutor;
+        this.realmSnapshotRepository = realmSnapshotRepository;
+        this.clientIdResolver = clientIdResolver;
     }
 
     public Optional<ClientRepresentation> tryToFindClient(String realm, String clientId) {
-        Optional<ClientRepresentation> maybeClient;
-
-        RealmResource realmResource = realmRepository.loadRealm(realm);
-        ClientsResource clients = realmResource.clients();
-
-        List<ClientRepresentation> foundClients = clients.findByClientId(clientId);
-
-        if (foundClients.isEmpty()) {
-            maybeClient = Optional.empty();
-        } else {
-            maybeClient = Optional.of(foundClients.get(0));
-        }
-
-        return maybeClient;
+        return realmSnapshotRepository.lookup(realm, Section.CLIENTS, clientId, () -> findByClientId(realm, clientId)
+                .stream()
+                .findFirst());
     }
 
     public ClientRepresentation getClientByClientId(String realm, String clientId) {
         return loadClientByClientId(realm, clientId);
     }
 
+    /**
+     * Resolves the clientId to the internal id, without a request for clients known to {@link ClientIdResolver}
+     */
+    public String getClientUuid(String realm, String clientId) {
+        return clientIdResolver.tryToResolve(realm, clientId)
+                .orElseThrow(() -> new KeycloakRepositoryException("Cannot find client by clientId '" + clientId + "'"));
+    }
+
     public ClientRepresentation getClientById(String realm, String id) {
         return loadClientById(realm, id).toRepresentation();
     }
@@ -92,9 +105,15 @@ public class ClientRepository {
         RealmResource realmResource = realmRepository.loadRealm(realm);
         ClientsResource clientsResource = realmResource.clients();
 
+        realmSnapshotRepository.invalidate(realm, Section.CLIENTS, client.getClientId());
+
         try {
             Response response = clientsResource.create(client);
-            ResponseUtil.validate(response);
+            String id = ResponseUtil.getCreatedId(response);
+
+            if (id != null) {
+                clientIdResolver.add(realm, client.getClientId(), id);
+            }
         } catch (WebApplicationException error) {
             String errorMessage = ResponseUtil.getErrorMessage(error);
 
@@ -112,19 +131,21 @@ public class ClientRepository {
         ClientsResource clientsResource = realmResource.clients();
         ClientResource clientResource = clientsResource.get(clientToUpdate.getId());
 
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENTS, clientToUpdate.getId());
+        realmSnapshotRepository.invalidate(realm, Section.CLIENTS, clientToUpdate.getClientId());
+
         clientResource.update(clientToUpdate);
     }
 
     private ClientRepresentation loadClientByClientId(String realm, String clientId) {
-        List<ClientRepresentation> foundClients = realmRepository.loadRealm(realm)
-                .clients()
-                .findByClientId(clientId);
-
-        if (foundClients.isEmpty()) {
-            throw new KeycloakRepositoryException("Cannot find client by clientId '" + clientId + "'");
-        }
+        return tryToFindClient(realm, clientId)
+                .orElseThrow(() -> new KeycloakRepositoryException("Cannot find client by clientId '" + clientId + "'"));
+    }
 
-        return foundClients.get(0);
+    private List<ClientRepresentation> findByClientId(String realm, String clientId) {
+        return singleFlight.execute(realm, "client", clientId, () -> realmRepository.loadRealm(realm)
+                .clients()
+                .findByClientId(clientId));
     }
 
     private ClientResource loadClientById(String realm, String id) {
@@ -140,10 +161,9 @@ public class ClientRepository {
     }
 
     final ClientResource getClientResourceByClientId(String realm, String clientId) {
-        ClientRepresentation client = loadClientByClientId(realm, clientId);
         return realmRepository.loadRealm(realm)
                 .clients()
-                .get(client.getId());
+                .get(getClientUuid(realm, clientId));
     }
 
     public final Set<String> getClientIds(String realm) {
@@ -163,6 +183,7 @@ public class ClientRepository {
 
     public void addProtocolMappers(String realm, String clientId, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientResource clientResource = loadClientById(realm, clientId);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENTS, clientId);
         ProtocolMappersResource protocolMappersResource = clientResource.getProtocolMappers();
 
         for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
@@ -171,8 +192,25 @@ public class ClientRepository {
         }
     }
 
+    /**
+     * Sends a create for each protocol mapper without waiting for the previous one
+     */
+    public CompletableFuture<Void> addProtocolMappersAsync(String realm, String clientId, List<ProtocolMapperRepresentation> protocolMappers) {
+        ClientResource clientResource = loadClientById(realm, clientId);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENTS, clientId);
+        ProtocolMappersResource protocolMappersResource = clientResource.getProtocolMappers();
+
+        return CompletableFuture.allOf(protocolMappers.stream()
+                .map(protocolMapper -> asyncWriteExecutor.run(
+                        "Cannot create protocolMapper '" + protocolMapper.getName() + "' for client with id '" + clientId + "' in realm '" + realm + "'",
+                        () -> ResponseUtil.validate(protocolMappersResource.createMapper(protocolMapper))
+                ))
+                .toArray(CompletableFuture[]::new));
+    }
+
     public void removeProtocolMappers(String realm, String clientId, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientResource clientResource = loadClientById(realm, clientId);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENTS, clientId);
         ProtocolMappersResource protocolMappersResource = clientResource.getProtocolMappers();
 
         List<ProtocolMapperRepresentation> existingProtocolMappers = clientResource.getProtocolMappers().getMappers();
@@ -185,6 +223,7 @@ public class ClientRepository {
 
     public void updateProtocolMappers(String realm, String id, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientResource clientResource = loadClientById(realm, id);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENTS, id);
         ProtocolMappersResource protocolMappersResource = clientResource.getProtocolMappers();
 
         for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
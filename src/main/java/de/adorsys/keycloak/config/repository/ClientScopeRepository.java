@@ -21,6 +21,7 @@
 package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import de.adorsys.keycloak.config.util.StreamUtil;
 import org.keycloak.admin.client.resource.ClientScopeResource;
@@ -43,10 +44,12 @@ import javax.ws.rs.core.Response;
 public class ClientScopeRepository {
 
     private final RealmRepository realmRepository;
+    private final RealmSnapshotRepository realmSnapshotRepository;
 
     @Autowired
-    public ClientScopeRepository(RealmRepository realmRepository) {
+    public ClientScopeRepository(RealmRepository realmRepository, RealmSnapshotRepository realmSnapshotRepository) {
         this.realmRepository = realmRepository;
+        this.realmSnapshotRepository = realmSnapshotRepository;
     }
 
     public List<ClientScopeRepresentation> getClientScopes(String realm) {
@@ -71,22 +74,30 @@ public class ClientScopeRepository {
     }
 
     public void createClientScope(String realm, ClientScopeRepresentation clientScope) {
+        realmSnapshotRepository.invalidate(realm, Section.CLIENT_SCOPES, clientScope.getName());
+
         Response response = realmRepository.loadRealm(realm).clientScopes().create(clientScope);
         ResponseUtil.validate(response);
     }
 
     public void deleteClientScope(String realm, String id) {
         ClientScopeResource clientScopeResource = loadClientScopeById(realm, id);
+
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENT_SCOPES, id);
         clientScopeResource.remove();
     }
 
     public void updateClientScope(String realm, ClientScopeRepresentation clientScope) {
         ClientScopeResource clientScopeResource = loadClientScopeById(realm, clientScope.getId());
+
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENT_SCOPES, clientScope.getId());
+        realmSnapshotRepository.invalidate(realm, Section.CLIENT_SCOPES, clientScope.getName());
         clientScopeResource.update(clientScope);
     }
 
     public void addProtocolMappers(String realm, String clientScopeId, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientScopeResource clientScopeResource = loadClientScopeById(realm, clientScopeId);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENT_SCOPES, clientScopeId);
         ProtocolMappersResource protocolMappersResource = clientScopeResource.getProtocolMappers();
 
         for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
@@ -97,6 +108,7 @@ public class ClientScopeRepository {
 
     public void removeProtocolMappers(String realm, String clientScopeId, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientScopeResource clientScopeResource = loadClientScopeById(realm, clientScopeId);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENT_SCOPES, clientScopeId);
         ProtocolMappersResource protocolMappersResource = clientScopeResource.getProtocolMappers();
 
         List<ProtocolMapperRepresentation> existingProtocolMappers = clientScopeResource.getProtocolMappers().getMappers();
@@ -109,6 +121,7 @@ public class ClientScopeRepository {
 
     public void updateProtocolMappers(String realm, String clientScopeId, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientScopeResource clientScopeResource = loadClientScopeById(realm, clientScopeId);
+        realmSnapshotRepository.invalidateId(realm, Section.CLIENT_SCOPES, clientScopeId);
         ProtocolMappersResource protocolMappersResource = clientScopeResource.getProtocolMappers();
 
         for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
@@ -145,13 +158,15 @@ public class ClientScopeRepository {
     }
 
     public Optional<ClientScopeRepresentation> tryToFindClientScopeByName(String realm, String clientScopeName) {
-        ClientScopesResource clientScopeResource = realmRepository.loadRealm(realm)
-                .clientScopes();
-
-        return clientScopeResource.findAll()
-                .stream()
-                .filter(s -> Objects.equals(s.getName(), clientScopeName))
-                .findFirst();
+        return realmSnapshotRepository.lookup(realm, Section.CLIENT_SCOPES, clientScopeName, () -> {
+            ClientScopesResource clientScopeResource = realmRepository.loadRealm(realm)
+                    .clientScopes();
+
+            return clientScopeResource.findAll()
+                    .stream()
+                    .filter(s -> Objects.equals(s.getName(), clientScopeName))
+                    .findFirst();
+        });
     }
 
     public List<ClientScopeRepresentation> getDefaultClientScopes(String realm) {
@@ -0,0 +1,193 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.keycloak.representations.idm.ComponentRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Components of the run, indexed by parent and by (providerType, subType, name) within the parent. The components of a
+ * realm are listed once, the first time they are needed. Top-level components have the realm id as parent.
+ * <p>
+ * Components written by {@link ComponentRepository} keep what was sent, but are fetched again by id when they are
+ * found, since keycloak fills in defaults and masks secrets. The children of a component created during the run are
+ * listed when they are first needed, as providers like LDAP create their own sub-components along with it.
+ */
+@Component
+public class ComponentIndex {
+    private final RealmRepository realmRepository;
+
+    private final ConcurrentMap<String, Components> componentsByRealm = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ComponentIndex(RealmRepository realmRepository) {
+        this.realmRepository = realmRepository;
+    }
+
+    public String getRealmId(String realm) {
+        return components(realm).realmId;
+    }
+
+    /**
+     * @param parentId null for a top-level component
+     * @param subType  may be null
+     */
+    public Optional<ComponentRepresentation> find(String realm, String parentId, String providerType, String subType, String name) {
+        Components components = components(realm);
+        Map<List<String>, ComponentRepresentation> children = children(realm, components, parentId);
+
+        ComponentRepresentation component = children.get(key(providerType, subType, name));
+        if (component == null) return Optional.empty();
+
+        if (components.staleIds.contains(component.getId())) {
+            component = realmRepository.loadRealm(realm).components().component(component.getId()).toRepresentation();
+
+            children.put(key(component), component);
+            components.staleIds.remove(component.getId());
+        }
+
+        return Optional.of(CloneUtil.deepClone(component));
+    }
+
+    /**
+     * Components written during the run are returned as they were sent
+     *
+     * @param parentId null for the top-level components
+     */
+    public List<ComponentRepresentation> findChildren(String realm, String parentId) {
+        Components components = components(realm);
+
+        return children(realm, components, parentId).values()
+                .stream()
+                .map(CloneUtil::deepClone)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The component has to carry its id, a realm that is not listed yet will list it along with the others
+     */
+    void put(String realm, ComponentRepresentation component) {
+        Components components = componentsByRealm.get(realm);
+        if (components == null) return;
+
+        ComponentRepresentation indexed = CloneUtil.deepClone(component);
+        if (indexed.getParentId() == null) indexed.setParentId(components.realmId);
+
+        Map<List<String>, ComponentRepresentation> siblings = components.childrenByParent.get(indexed.getParentId());
+        if (siblings == null) return;
+
+        siblings.values().removeIf(c -> indexed.getId().equals(c.getId()));
+        siblings.put(key(indexed), indexed);
+        components.staleIds.add(indexed.getId());
+    }
+
+    /**
+     * Keycloak removes the sub-components along with the component
+     */
+    void remove(String realm, String id) {
+        Components components = componentsByRealm.get(realm);
+        if (components == null) return;
+
+        for (Map<List<String>, ComponentRepresentation> siblings : components.childrenByParent.values()) {
+            siblings.values().removeIf(c -> id.equals(c.getId()));
+        }
+
+        components.childrenByParent.remove(id);
+        components.staleIds.remove(id);
+    }
+
+    private Components components(String realm) {
+        // concurrent first callers of a realm wait for the one listing
+        return componentsByRealm.computeIfAbsent(realm, this::listComponents);
+    }
+
+    private Map<List<String>, ComponentRepresentation> children(String realm, Components components, String parentId) {
+        String id = parentId != null ? parentId : components.realmId;
+
+        return components.childrenByParent.computeIfAbsent(id, p -> index(
+                realmRepository.loadRealm(realm).components().query(p)
+        ));
+    }
+
+    private Components listComponents(String realm) {
+        Components components = new Components(realmRepository.get(realm).getId());
+
+        List<ComponentRepresentation> realmComponents = realmRepository.loadRealm(realm).components().query();
+
+        // every listed component is known to have no other children than the listed ones
+        components.childrenByParent.put(components.realmId, new ConcurrentHashMap<>());
+        for (ComponentRepresentation component : realmComponents) {
+            components.childrenByParent.putIfAbsent(component.getId(), new ConcurrentHashMap<>());
+        }
+
+        for (ComponentRepresentation component : realmComponents) {
+            components.childrenByParent
+                    .computeIfAbsent(component.getParentId(), p -> new ConcurrentHashMap<>())
+                    .putIfAbsent(key(component), component);
+        }
+
+        return components;
+    }
+
+    /**
+     * The first component of a key wins, like the {@code findFirst()} of the lookups it replaces
+     */
+    private static Map<List<String>, ComponentRepresentation> index(List<ComponentRepresentation> components) {
+        Map<List<String>, ComponentRepresentation> index = new ConcurrentHashMap<>();
+
+        if (components != null) {
+            for (ComponentRepresentation component : components) {
+                index.putIfAbsent(key(component), component);
+            }
+        }
+
+        return index;
+    }
+
+    private static List<String> key(ComponentRepresentation component) {
+        return key(component.getProviderType(), component.getSubType(), component.getName());
+    }
+
+    private static List<String> key(String providerType, String subType, String name) {
+        return Arrays.asList(providerType, subType, name);
+    }
+
+    private static class Components {
+        private final String realmId;
+        private final Map<String, Map<List<String>, ComponentRepresentation>> childrenByParent = new ConcurrentHashMap<>();
+        private final Set<String> staleIds = ConcurrentHashMap.newKeySet();
+
+        Components(String realmId) {
+            this.realmId = realmId;
+        }
+    }
+}
@@ -22,6 +22,7 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.util.CloneUtil;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.resource.ComponentResource;
 import org.keycloak.admin.client.resource.RealmResource;
@@ -29,9 +30,7 @@ import org.keycloak.representations.idm.ComponentRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
@@ -40,18 +39,21 @@ import javax.ws.rs.core.Response;
 public class ComponentRepository {
 
     private final RealmRepository realmRepository;
+    private final ComponentIndex componentIndex;
 
     @Autowired
-    public ComponentRepository(RealmRepository realmRepository) {
+    public ComponentRepository(RealmRepository realmRepository, ComponentIndex componentIndex) {
         this.realmRepository = realmRepository;
+        this.componentIndex = componentIndex;
     }
 
     public void create(String realm, ComponentRepresentation component) {
         RealmResource realmResource = realmRepository.loadRealm(realm);
 
+        String id;
         try {
             Response response = realmResource.components().add(component);
-            ResponseUtil.validate(response);
+            id = ResponseUtil.getCreatedId(response);
         } catch (WebApplicationException error) {
             String errorMessage = ResponseUtil.getErrorMessage(error);
 
@@ -62,6 +64,13 @@ public class ComponentRepository {
                     error
             );
         }
+
+        if (id != null) {
+            ComponentRepresentation createdComponent = CloneUtil.deepClone(component);
+            createdComponent.setId(id);
+
+            componentIndex.put(realm, createdComponent);
+        }
     }
 
     public void update(String realm, ComponentRepresentation component) {
@@ -69,6 +78,7 @@ public class ComponentRepository {
         ComponentResource componentResource = realmResource.components().component(component.getId());
 
         componentResource.update(component);
+        componentIndex.put(realm, component);
     }
 
     public void delete(String realm, ComponentRepresentation component) {
@@ -76,18 +86,15 @@ public class ComponentRepository {
         ComponentResource componentResource = realmResource.components().component(component.getId());
 
         componentResource.remove();
+        componentIndex.remove(realm, component.getId());
     }
 
-    public ComponentRepresentation get(String realm, String providerType, String name) {
-        RealmResource realmResource = realmRepository.loadRealm(realm);
-
-        List<ComponentRepresentation> realmComponents = realmResource.components().query();
-
-        Optional<ComponentRepresentation> maybeComponent = realmComponents
-                .stream()
-                .filter(c -> Objects.equals(c.getName(), name))
-                .filter(c -> Objects.equals(c.getProviderType(), providerType))
-                .findFirst();
+    /**
+     * @param parentId null for a top-level component
+     * @param subType  may be null
+     */
+    public ComponentRepresentation get(String realm, String parentId, String providerType, String subType, String name) {
+        Optional<ComponentRepresentation> maybeComponent = componentIndex.find(realm, parentId, providerType, subType, name);
 
         if (maybeComponent.isPresent()) {
             return maybeComponent.get();
@@ -96,53 +103,25 @@ public class ComponentRepository {
         throw new KeycloakRepositoryException("Cannot find component by name '" + name + "' and subtype '" + providerType + "' in realm '" + realm + "' ");
     }
 
+    /**
+     * Components written during the run are returned as they were sent
+     *
+     * @param parentId null for the top-level components
+     */
     public List<ComponentRepresentation> getAllComponents(String realm, String parentId) {
-        if (parentId == null) {
-            RealmResource realmResource = realmRepository.loadRealm(realm);
-            parentId = realmResource.toRepresentation().getId();
-        }
-
-        RealmResource realmResource = realmRepository.loadRealm(realm);
-
-        List<ComponentRepresentation> subComponents = realmResource.components().query(parentId);
-
-        if (subComponents == null) {
-            return Collections.emptyList();
-        }
-
-        return subComponents;
+        return componentIndex.findChildren(realm, parentId);
     }
 
     /**
-     * Try to get a component by its properties.
+     * Try to get a top-level component by its properties.
      *
      * @param subType may be null
      */
-    public Optional<ComponentRepresentation> tryToGetComponent(String realm, String name, String subType) {
-        RealmResource realmResource = realmRepository.loadRealm(realm);
-
-        List<ComponentRepresentation> existingComponents = realmResource.components()
-                .query();
-
-        return existingComponents.stream()
-                .filter(c -> Objects.equals(c.getName(), name))
-                .filter(c -> Objects.equals(c.getSubType(), subType))
-                .findFirst();
+    public Optional<ComponentRepresentation> tryToGetComponent(String realm, String providerType, String name, String subType) {
+        return componentIndex.find(realm, null, providerType, subType, name);
     }
 
-    public Optional<ComponentRepresentation> tryToGetSubComponent(String realm, String parentId, String subType, String name) {
-        RealmResource realmResource = realmRepository.loadRealm(realm);
-
-        Optional<ComponentRepresentation> maybeComponent;
-        List<ComponentRepresentation> existingComponents = realmResource.components()
-                .query(parentId, subType, name);
-
-        if (existingComponents.isEmpty()) {
-            maybeComponent = Optional.empty();
-        } else {
-            maybeComponent = Optional.of(existingComponents.get(0));
-        }
-
-        return maybeComponent;
+    public Optional<ComponentRepresentation> tryToGetSubComponent(String realm, String parentId, String providerType, String subType, String name) {
+        return componentIndex.find(realm, parentId, providerType, subType, name);
     }
 }
@@ -44,10 +44,12 @@ public class ExecutionFlowRepository {
     private static final Logger logger = LoggerFactory.getLogger(ExecutionFlowRepository.class);
 
     private final AuthenticationFlowRepository authenticationFlowRepository;
+    private final ExecutionTreeCache executionTreeCache;
 
     @Autowired
-    public ExecutionFlowRepository(AuthenticationFlowRepository authenticationFlowRepository) {
+    public ExecutionFlowRepository(AuthenticationFlowRepository authenticationFlowRepository, ExecutionTreeCache executionTreeCache) {
         this.authenticationFlowRepository = authenticationFlowRepository;
+        this.executionTreeCache = executionTreeCache;
     }
 
     public AuthenticationExecutionInfoRepresentation getExecutionFlow(String realm, String topLevelFlowAlias, AuthenticationExecutionExportRepresentation execution) {
@@ -64,9 +66,7 @@ public class ExecutionFlowRepository {
     public Optional<AuthenticationExecutionInfoRepresentation> tryToGetNonTopLevelFlow(String realm, String topLevelFlowAlias, String nonTopLevelFlowAlias) {
         logger.trace("Try to get non-top-level-flow '{}' from realm '{}' and top-level-flow '{}'", nonTopLevelFlowAlias, realm, topLevelFlowAlias);
 
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
-
-        return flowsResource.getExecutions(topLevelFlowAlias)
+        return executionTreeCache.getExecutions(realm, topLevelFlowAlias)
                 .stream()
                 /* we have to compare the display name with the alias, because the alias property in
                  AuthenticationExecutionInfoRepresentation representations is always set to null. */
@@ -74,54 +74,66 @@ public class ExecutionFlowRepository {
                 .findFirst();
     }
 
+    /**
+     * @param nonTopLevelExecutionFlow the execution of the non-top-level flow within the top-level flow
+     */
+    public AuthenticationFlowRepresentation getNonTopLevelFlow(String realm, String topLevelFlowAlias, AuthenticationExecutionInfoRepresentation nonTopLevelExecutionFlow) {
+        return executionTreeCache.getNonTopLevelFlow(realm, topLevelFlowAlias, nonTopLevelExecutionFlow.getFlowId());
+    }
+
     public void createExecutionFlow(String realm, String topLevelFlowAlias, Map<String, String> executionFlowData) {
         logger.trace("Create non-top-level-flow in realm '{}' and top-level-flow '{}'", realm, topLevelFlowAlias);
 
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
         flowsResource.addExecutionFlow(topLevelFlowAlias, executionFlowData);
+        executionTreeCache.invalidate(realm, topLevelFlowAlias);
     }
 
     public void updateExecutionFlow(String realm, String flowAlias, AuthenticationExecutionInfoRepresentation executionFlowToUpdate) {
         logger.trace("Update non-top-level-flow '{}' from realm '{}' and top-level-flow '{}'", executionFlowToUpdate.getAlias(), realm, flowAlias);
 
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
         flowsResource.updateExecutions(flowAlias, executionFlowToUpdate);
+        executionTreeCache.update(realm, executionFlowToUpdate);
     }
 
-    public void createTopLevelFlowExecution(String realm, AuthenticationExecutionRepresentation executionToCreate) {
-        logger.trace("Create flow-execution '{}' in realm '{}' and top-level-flow '{}'...", executionToCreate.getAuthenticator(), realm, executionToCreate.getParentFlow());
+    /**
+     * @param topLevelFlowAlias alias of the flow referenced by the parentFlow id of the execution
+     */
+    public void createTopLevelFlowExecution(String realm, String topLevelFlowAlias, AuthenticationExecutionRepresentation executionToCreate) {
+        logger.trace("Create flow-execution '{}' in realm '{}' and top-level-flow '{}'...", executionToCreate.getAuthenticator(), realm, topLevelFlowAlias);
 
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
 
         try {
             Response response = flowsResource.addExecution(executionToCreate);
             ResponseUtil.validate(response);
         } catch (WebApplicationException error) {
-            AuthenticationFlowRepresentation parentFlow = authenticationFlowRepository.getFlowById(realm, executionToCreate.getParentFlow());
             throw new ImportProcessingException(
                     "Cannot create execution-flow '" + executionToCreate.getAuthenticator()
-                            + "' for top-level-flow '" + parentFlow.getAlias()
+                            + "' for top-level-flow '" + topLevelFlowAlias
                             + "' for realm '" + realm + "'",
                     error
             );
         }
 
-        logger.trace("Created flow-execution '{}' in realm '{}' and top-level-flow '{}'", executionToCreate.getAuthenticator(), realm, executionToCreate.getParentFlow());
+        executionTreeCache.invalidate(realm, topLevelFlowAlias);
+
+        logger.trace("Created flow-execution '{}' in realm '{}' and top-level-flow '{}'", executionToCreate.getAuthenticator(), realm, topLevelFlowAlias);
     }
 
     public void createNonTopLevelFlowExecution(String realm, String nonTopLevelFlowAlias, Map<String, String> executionData) {
         logger.trace("Create flow-execution in realm '{}' and non-top-level-flow '{}'...", realm, nonTopLevelFlowAlias);
 
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowsForUpdate(realm);
         flowsResource.addExecution(nonTopLevelFlowAlias, executionData);
+        executionTreeCache.invalidate(realm, nonTopLevelFlowAlias);
 
         logger.trace("Created flow-execution in realm '{}' and non-top-level-flow '{}'", realm, nonTopLevelFlowAlias);
     }
 
     private Optional<AuthenticationExecutionInfoRepresentation> tryToGetExecutionFlow(String realm, String topLevelFlowAlias, String executionProviderId, String subFlowAlias) {
-        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlows(realm);
-
-        return flowsResource.getExecutions(topLevelFlowAlias)
+        return executionTreeCache.getExecutions(realm, topLevelFlowAlias)
                 .stream()
                 .filter(f -> Objects.equals(f.getProviderId(), executionProviderId))
                 .filter(f -> {
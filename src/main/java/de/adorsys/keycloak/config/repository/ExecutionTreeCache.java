@@ -0,0 +1,150 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.keycloak.representations.idm.AuthenticationExecutionInfoRepresentation;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Execution trees of the flows of the run, fetched once per flow alias, together with the non-top-level flows of the
+ * tree that were fetched by id.
+ * <p>
+ * A write to a flow drops its tree and the trees of all flows containing it, an update of an execution is written
+ * through. Callers get deep clones, so they are free to modify them.
+ */
+@Component
+public class ExecutionTreeCache {
+    private final RealmRepository realmRepository;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, ExecutionTree>> treesByRealm = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExecutionTreeCache(RealmRepository realmRepository) {
+        this.realmRepository = realmRepository;
+    }
+
+    public List<AuthenticationExecutionInfoRepresentation> getExecutions(String realm, String flowAlias) {
+        return tree(realm, flowAlias).executions
+                .stream()
+                .map(CloneUtil::deepClone)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param flowAlias alias of the flow whose tree contains the non-top-level flow
+     */
+    public AuthenticationFlowRepresentation getNonTopLevelFlow(String realm, String flowAlias, String nonTopLevelFlowId) {
+        AuthenticationFlowRepresentation flow = tree(realm, flowAlias).nonTopLevelFlows.computeIfAbsent(
+                nonTopLevelFlowId, id -> realmRepository.loadRealm(realm).flows().getFlow(id)
+        );
+
+        return CloneUtil.deepClone(flow);
+    }
+
+    /**
+     * For writes that change the executions of the given flow
+     */
+    void invalidate(String realm, String flowAlias) {
+        invalidate(realm, (alias, tree) -> alias.equals(flowAlias) || tree.contains(execution ->
+                Boolean.TRUE.equals(execution.getAuthenticationFlow()) && flowAlias.equals(execution.getDisplayName())
+        ));
+    }
+
+    void invalidateExecution(String realm, String executionId) {
+        invalidate(realm, (alias, tree) -> tree.contains(execution -> executionId.equals(execution.getId())));
+    }
+
+    void invalidateAuthenticatorConfig(String realm, String authenticatorConfigId) {
+        invalidate(realm, (alias, tree) -> tree.contains(execution -> authenticatorConfigId.equals(execution.getAuthenticationConfig())));
+    }
+
+    /**
+     * For writes that only know the id of a top-level flow
+     */
+    void invalidate(String realm) {
+        treesByRealm.remove(realm);
+    }
+
+    /**
+     * Replaces the execution in every tree that contains it, like keycloak does with the representation it gets
+     */
+    void update(String realm, AuthenticationExecutionInfoRepresentation execution) {
+        Map<String, ExecutionTree> trees = treesByRealm.get(realm);
+        if (trees == null) return;
+
+        trees.replaceAll((alias, tree) -> tree.contains(e -> Objects.equals(e.getId(), execution.getId()))
+                ? tree.with(execution)
+                : tree
+        );
+    }
+
+    private ExecutionTree tree(String realm, String flowAlias) {
+        return treesByRealm.computeIfAbsent(realm, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(flowAlias, alias -> new ExecutionTree(realmRepository.loadRealm(realm).flows().getExecutions(alias)));
+    }
+
+    private void invalidate(String realm, TreePredicate predicate) {
+        Map<String, ExecutionTree> trees = treesByRealm.get(realm);
+        if (trees == null) return;
+
+        trees.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+    }
+
+    @FunctionalInterface
+    private interface TreePredicate {
+        boolean test(String flowAlias, ExecutionTree tree);
+    }
+
+    private static class ExecutionTree {
+        private final List<AuthenticationExecutionInfoRepresentation> executions;
+        private final ConcurrentMap<String, AuthenticationFlowRepresentation> nonTopLevelFlows = new ConcurrentHashMap<>();
+
+        ExecutionTree(List<AuthenticationExecutionInfoRepresentation> executions) {
+            this.executions = executions;
+        }
+
+        boolean contains(Predicate<AuthenticationExecutionInfoRepresentation> predicate) {
+            return executions.stream().anyMatch(predicate);
+        }
+
+        /**
+         * The non-top-level flows are not carried over, the changed execution might be part of one
+         */
+        ExecutionTree with(AuthenticationExecutionInfoRepresentation execution) {
+            AuthenticationExecutionInfoRepresentation updated = CloneUtil.deepClone(execution);
+
+            return new ExecutionTree(executions.stream()
+                    .map(e -> Objects.equals(e.getId(), updated.getId()) ? updated : e)
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -23,7 +23,6 @@ package de.adorsys.keycloak.config.repository;
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.resource.*;
-import org.keycloak.representations.idm.ClientRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.Response;
 
@@ -43,17 +43,23 @@ public class GroupRepository {
     private final RoleRepository roleRepository;
     private final ClientRepository clientRepository;
     private final UserRepository userRepository;
+    private final AsyncWriteExecutor asyncWriteExecutor;
+    private final GroupTree groupTree;
 
     @Autowired
     public GroupRepository(
             RealmRepository realmRepository,
             RoleRepository roleRepository,
             ClientRepository clientRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            AsyncWriteExecutor asyncWriteExecutor,
+            GroupTree groupTree) {
         this.realmRepository = realmRepository;
         this.roleRepository = roleRepository;
         this.clientRepository = clientRepository;
         this.userRepository = userRepository;
+        this.asyncWriteExecutor = asyncWriteExecutor;
+        this.groupTree = groupTree;
     }
 
     public List<GroupRepresentation> getGroups(String realm) {
@@ -63,30 +69,27 @@ public class GroupRepository {
         return groupsResource.groups();
     }
 
+    /**
+     * Top-level groups of the given names, with their id, name and path only
+     */
     public List<GroupRepresentation> searchGroups(String realmName, List<String> groupNames) {
-        List<GroupRepresentation> roles = new ArrayList<>();
-        GroupsResource groupsResource = realmRepository.loadRealm(realmName).groups();
+        List<GroupRepresentation> groups = new ArrayList<>();
 
         for (String groupName : groupNames) {
-            GroupRepresentation role = groupsResource.groups(groupName, 0, 500)
-                    .stream().filter(group -> group.getName().equals(groupName))
-                    .findFirst()
+            GroupRepresentation group = groupTree.findByPath(realmName, GroupTree.path(null, groupName))
                     .orElseThrow(() -> new ImportProcessingException("Could not find group '" + groupName + "' in realm '" + realmName + "'!"));
 
-            roles.add(role);
+            groups.add(group);
         }
 
-        return roles;
+        return groups;
     }
 
+    /**
+     * The found group has its id, name and path only, use {@link #getGroupByName(String, String)} for all of it
+     */
     public Optional<GroupRepresentation> tryToFindGroupByName(String realm, String groupName) {
-        GroupsResource groupsResource = realmRepository.loadRealm(realm)
-                .groups();
-
-        return groupsResource.groups()
-                .stream()
-                .filter(g -> Objects.equals(g.getName(), groupName))
-                .findFirst();
+        return groupTree.findByPath(realm, GroupTree.path(null, groupName));
     }
 
     public void createGroup(String realm, GroupRepresentation group) {
@@ -94,17 +97,26 @@ public class GroupRepository {
                 .groups()
                 .add(group);
 
-        ResponseUtil.validate(response);
+        String id = ResponseUtil.getCreatedId(response);
+        if (id != null) groupTree.add(realm, null, group.getName(), id);
     }
 
     public void addSubGroup(String realm, String parentGroupId, GroupRepresentation subGroup) {
         GroupResource groupResource = loadGroupById(realm, parentGroupId);
+
         Response response = groupResource.subGroup(subGroup);
 
-        ResponseUtil.validate(response);
+        String id = ResponseUtil.getCreatedId(response);
+        if (id != null) groupTree.add(realm, parentGroupId, subGroup.getName(), id);
     }
 
     public GroupRepresentation getSubGroupByName(String realm, String parentGroupId, String name) {
+        Optional<GroupRepresentation> maybeSubGroup = groupTree.findSubGroup(realm, parentGroupId, name);
+
+        if (maybeSubGroup.isPresent()) {
+            return getGroupById(realm, maybeSubGroup.get().getId());
+        }
+
         GroupRepresentation existingGroup = loadGroupById(realm, parentGroupId).toRepresentation();
 
         return existingGroup.getSubGroups()
@@ -141,6 +153,7 @@ public class GroupRepository {
     public void deleteGroup(String realm, String id) {
         GroupResource groupResource = loadGroupById(realm, id);
         groupResource.remove();
+        groupTree.remove(realm, id);
     }
 
     public void addGroupsToUser(String realm, String username, List<GroupRepresentation> groups) {
@@ -157,13 +170,37 @@ public class GroupRepository {
         }
     }
 
+    /**
+     * Sends a join for each group without waiting for the previous one
+     */
+    public CompletableFuture<Void> addGroupsToUserAsync(String realm, String username, List<GroupRepresentation> groups) {
+        UserResource userResource = userRepository.getUserResource(realm, username);
+
+        return CompletableFuture.allOf(groups.stream()
+                .map(group -> asyncWriteExecutor.run(
+                        "Cannot add user '" + username + "' to group '" + group.getName() + "' in realm '" + realm + "'",
+                        () -> userResource.joinGroup(group.getId())
+                ))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    public CompletableFuture<Void> removeGroupsFromUserAsync(String realm, String username, List<GroupRepresentation> groups) {
+        UserResource userResource = userRepository.getUserResource(realm, username);
+
+        return CompletableFuture.allOf(groups.stream()
+                .map(group -> asyncWriteExecutor.run(
+                        "Cannot remove user '" + username + "' from group '" + group.getName() + "' in realm '" + realm + "'",
+                        () -> userResource.leaveGroup(group.getId())
+                ))
+                .toArray(CompletableFuture[]::new));
+    }
 
     public void addClientRoles(String realm, String groupId, String clientId, List<String> roleNames) {
         GroupResource groupResource = loadGroupById(realm, groupId);
         RoleMappingResource rolesResource = groupResource.roles();
 
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
-        RoleScopeResource groupClientRolesResource = rolesResource.clientLevel(client.getId());
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
+        RoleScopeResource groupClientRolesResource = rolesResource.clientLevel(clientUuid);
 
         List<RoleRepresentation> clientRoles = roleRepository.searchClientRoles(realm, clientId, roleNames);
         groupClientRolesResource.add(clientRoles);
@@ -173,8 +210,8 @@ public class GroupRepository {
         GroupResource groupResource = loadGroupById(realm, groupId);
         RoleMappingResource rolesResource = groupResource.roles();
 
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
-        RoleScopeResource groupClientRolesResource = rolesResource.clientLevel(client.getId());
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
+        RoleScopeResource groupClientRolesResource = rolesResource.clientLevel(clientUuid);
 
         List<RoleRepresentation> clientRoles = roleRepository.searchClientRoles(realm, clientId, roleNames);
         groupClientRolesResource.remove(clientRoles);
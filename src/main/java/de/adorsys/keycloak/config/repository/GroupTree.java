@@ -0,0 +1,161 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.ws.rs.NotFoundException;
+
+/**
+ * Group hierarchy of the run, indexed by id and by full path. The hierarchy of a realm is listed once, when it is first
+ * needed, and {@link GroupRepository} adds and removes groups as it creates and deletes them. A path that is not known
+ * is resolved with the group-by-path endpoint; only found groups are added.
+ * <p>
+ * Groups of the tree carry their id, name and path only.
+ */
+@Component
+public class GroupTree {
+    private final RealmRepository realmRepository;
+    private final SingleFlight singleFlight;
+
+    private final ConcurrentMap<String, Groups> groupsByRealm = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GroupTree(RealmRepository realmRepository, SingleFlight singleFlight) {
+        this.realmRepository = realmRepository;
+        this.singleFlight = singleFlight;
+    }
+
+    public static String path(String parentPath, String name) {
+        return (parentPath == null ? "" : parentPath) + "/" + name;
+    }
+
+    public Optional<GroupRepresentation> findByPath(String realm, String path) {
+        Groups groups = groups(realm);
+
+        GroupRepresentation group = groups.byPath.get(path);
+        if (group != null) return Optional.of(group);
+
+        Optional<GroupRepresentation> maybeGroup = singleFlight.execute(realm, "group-path", path, () -> {
+            try {
+                return Optional.of(realmRepository.loadRealm(realm).getGroupByPath(path.substring(1)));
+            } catch (NotFoundException e) {
+                return Optional.empty();
+            }
+        });
+
+        maybeGroup.ifPresent(found -> groups.add(found.getId(), path));
+        return maybeGroup.map(found -> groups.byPath.get(path));
+    }
+
+    /**
+     * Empty if the subgroup does not exist or the parent is not known
+     */
+    public Optional<GroupRepresentation> findSubGroup(String realm, String parentGroupId, String name) {
+        Groups groups = groups(realm);
+        GroupRepresentation parent = groups.byId.get(parentGroupId);
+
+        if (parent == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(groups.byPath.get(path(parent.getPath(), name)));
+    }
+
+    /**
+     * @param parentGroupId null for a top-level group
+     */
+    void add(String realm, String parentGroupId, String name, String id) {
+        Groups groups = groupsByRealm.get(realm);
+        if (groups == null) return;
+
+        if (parentGroupId == null) {
+            groups.add(id, path(null, name));
+            return;
+        }
+
+        GroupRepresentation parent = groups.byId.get(parentGroupId);
+        if (parent != null) groups.add(id, path(parent.getPath(), name));
+    }
+
+    /**
+     * Removes the group and its subgroups
+     */
+    void remove(String realm, String id) {
+        Groups groups = groupsByRealm.get(realm);
+        if (groups == null) return;
+
+        GroupRepresentation group = groups.byId.get(id);
+        if (group == null) return;
+
+        String subGroupPrefix = group.getPath() + "/";
+        groups.byPath.values().removeIf(g -> g.getPath().equals(group.getPath()) || g.getPath().startsWith(subGroupPrefix));
+        groups.byId.values().removeIf(g -> g.getPath().equals(group.getPath()) || g.getPath().startsWith(subGroupPrefix));
+    }
+
+    private Groups groups(String realm) {
+        // concurrent first callers of a realm wait for the one listing
+        return groupsByRealm.computeIfAbsent(realm, r -> new Groups(realmRepository.loadRealm(r).groups().groups()));
+    }
+
+    private static class Groups {
+        private final ConcurrentMap<String, GroupRepresentation> byId = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, GroupRepresentation> byPath = new ConcurrentHashMap<>();
+
+        Groups(List<GroupRepresentation> topLevelGroups) {
+            Deque<GroupRepresentation> pending = new ArrayDeque<>(topLevelGroups);
+            Deque<String> parentPaths = new ArrayDeque<>();
+            topLevelGroups.forEach(g -> parentPaths.add(""));
+
+            while (!pending.isEmpty()) {
+                GroupRepresentation group = pending.pop();
+                String path = path(parentPaths.pop(), group.getName());
+
+                add(group.getId(), path);
+
+                if (group.getSubGroups() != null) {
+                    for (GroupRepresentation subGroup : group.getSubGroups()) {
+                        pending.push(subGroup);
+                        parentPaths.push(path);
+                    }
+                }
+            }
+        }
+
+        void add(String id, String path) {
+            GroupRepresentation group = new GroupRepresentation();
+            group.setId(id);
+            group.setName(path.substring(path.lastIndexOf('/') + 1));
+            group.setPath(path);
+
+            byId.put(id, group);
+            byPath.put(path, group);
+        }
+    }
+}
@@ -69,12 +69,14 @@ public class IdentityProviderMapperRepository {
 
         Response response = identityProvidersResource.get(identityProviderMapper.getIdentityProviderAlias()).addMapper(identityProviderMapper);
         ResponseUtil.validate(response);
+        realmRepository.invalidate(realm);
     }
 
     public void updateIdentityProviderMapper(String realm, IdentityProviderMapperRepresentation identityProviderMapperToUpdate) {
         IdentityProvidersResource identityProvidersResource = realmRepository.loadRealm(realm).identityProviders();
 
         identityProvidersResource.get(identityProviderMapperToUpdate.getIdentityProviderAlias()).update(identityProviderMapperToUpdate.getId(), identityProviderMapperToUpdate);
+        realmRepository.invalidate(realm);
     }
 
     public void deleteIdentityProviderMapper(String realm, IdentityProviderMapperRepresentation identityProviderMapperToDelete) {
@@ -82,6 +84,7 @@ public class IdentityProviderMapperRepository {
         String identityProviderAlias = identityProviderMapperToDelete.getIdentityProviderAlias();
 
         identityProvidersResource.get(identityProviderAlias).delete(identityProviderMapperToDelete.getId());
+        realmRepository.invalidate(realm);
     }
 
     private Optional<IdentityProviderMapperRepresentation> loadIdentityProviderMapperByName(String realm, String identityProviderAlias, String name) {
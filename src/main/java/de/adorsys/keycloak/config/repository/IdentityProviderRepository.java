@@ -20,6 +20,7 @@
 
 package de.adorsys.keycloak.config.repository;
 
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.resource.IdentityProviderResource;
 import org.keycloak.admin.client.resource.IdentityProvidersResource;
@@ -36,24 +37,28 @@ import javax.ws.rs.core.Response;
 public class IdentityProviderRepository {
 
     private final RealmRepository realmRepository;
+    private final RealmSnapshotRepository realmSnapshotRepository;
 
     @Autowired
-    public IdentityProviderRepository(RealmRepository realmRepository) {
+    public IdentityProviderRepository(RealmRepository realmRepository, RealmSnapshotRepository realmSnapshotRepository) {
         this.realmRepository = realmRepository;
+        this.realmSnapshotRepository = realmSnapshotRepository;
     }
 
     public Optional<IdentityProviderRepresentation> tryToFindIdentityProvider(String realm, String alias) {
-        Optional<IdentityProviderRepresentation> maybeIdentityProvider;
+        return realmSnapshotRepository.lookup(realm, Section.IDENTITY_PROVIDERS, alias, () -> {
+            Optional<IdentityProviderRepresentation> maybeIdentityProvider;
 
-        IdentityProviderResource identityProviderResource = loadIdentityProviderByAlias(realm, alias);
+            IdentityProviderResource identityProviderResource = loadIdentityProviderByAlias(realm, alias);
 
-        try {
-            maybeIdentityProvider = Optional.of(identityProviderResource.toRepresentation());
-        } catch (NotFoundException e) {
-            maybeIdentityProvider = Optional.empty();
-        }
+            try {
+                maybeIdentityProvider = Optional.of(identityProviderResource.toRepresentation());
+            } catch (NotFoundException e) {
+                maybeIdentityProvider = Optional.empty();
+            }
 
-        return maybeIdentityProvider;
+            return maybeIdentityProvider;
+        });
     }
 
     public IdentityProviderRepresentation getIdentityProviderByAlias(String realm, String alias) {
@@ -70,8 +75,11 @@ public class IdentityProviderRepository {
 
     public void createIdentityProvider(String realm, IdentityProviderRepresentation identityProvider) {
         IdentityProvidersResource identityProvidersResource = realmRepository.loadRealm(realm).identityProviders();
+
+        realmSnapshotRepository.invalidate(realm, Section.IDENTITY_PROVIDERS, identityProvider.getAlias());
         Response response = identityProvidersResource.create(identityProvider);
         ResponseUtil.validate(response);
+        realmRepository.invalidate(realm);
     }
 
     public void updateIdentityProvider(String realm, IdentityProviderRepresentation identityProviderToUpdate) {
@@ -79,7 +87,9 @@ public class IdentityProviderRepository {
                 .identityProviders()
                 .get(identityProviderToUpdate.getAlias());
 
+        realmSnapshotRepository.invalidate(realm, Section.IDENTITY_PROVIDERS, identityProviderToUpdate.getAlias());
         identityProviderResource.update(identityProviderToUpdate);
+        realmRepository.invalidate(realm);
     }
 
     public void deleteIdentityProvider(String realm, IdentityProviderRepresentation identityProviderToDelete) {
@@ -87,7 +97,10 @@ public class IdentityProviderRepository {
                 .identityProviders()
                 .get(identityProviderToDelete.getInternalId());
 
+        realmSnapshotRepository.invalidateId(realm, Section.IDENTITY_PROVIDERS, identityProviderToDelete.getInternalId());
+        realmSnapshotRepository.invalidate(realm, Section.IDENTITY_PROVIDERS, identityProviderToDelete.getAlias());
         identityProviderResource.remove();
+        realmRepository.invalidate(realm);
     }
 
     private IdentityProviderResource loadIdentityProviderByAlias(String realm, String identityProviderAlias) {
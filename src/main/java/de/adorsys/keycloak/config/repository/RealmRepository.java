@@ -22,6 +22,7 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
 import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.util.CloneUtil;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.RealmResource;
@@ -30,21 +31,30 @@ import org.keycloak.representations.idm.RealmRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.ws.rs.WebApplicationException;
 
+/**
+ * The representation of a realm is fetched once and kept until the realm is written, by {@link #update} or by a
+ * repository writing parts of it, like the identity providers and their mappers. Callers get a deep clone, so they
+ * are free to modify it.
+ */
 @Service
 public class RealmRepository {
 
     private final KeycloakProvider keycloakProvider;
 
+    private final Map<String, RealmRepresentation> realms = new ConcurrentHashMap<>();
+
     @Autowired
     public RealmRepository(KeycloakProvider keycloakProvider) {
         this.keycloakProvider = keycloakProvider;
     }
 
     public boolean exists(String realm) {
-        return tryToLoadRealm(realm).isPresent();
+        return realms.containsKey(realm) || tryToLoadRealm(realm).isPresent();
     }
 
     final RealmResource loadRealm(String realm) {
@@ -57,6 +67,7 @@ public class RealmRepository {
 
         try {
             realmsResource.create(realmToCreate);
+            invalidate(realmToCreate.getRealm());
         } catch (WebApplicationException error) {
             String errorMessage = ResponseUtil.getErrorMessage(error);
             throw new KeycloakRepositoryException(
@@ -67,11 +78,20 @@ public class RealmRepository {
     }
 
     public RealmRepresentation get(String realm) {
-        return loadRealm(realm).toRepresentation();
+        RealmRepresentation existingRealm = realms.computeIfAbsent(realm, r -> loadRealm(r).toRepresentation());
+        return CloneUtil.deepClone(existingRealm);
     }
 
     public void update(RealmRepresentation realmToUpdate) {
         loadRealm(realmToUpdate.getRealm()).update(realmToUpdate);
+        invalidate(realmToUpdate.getRealm());
+    }
+
+    /**
+     * For writes through other resources that change the representation of the realm
+     */
+    void invalidate(String realm) {
+        realms.remove(realm);
     }
 
     public RealmRepresentation partialExport(String realm, boolean exportGroupsAndRoles, boolean exportClients) {
@@ -86,6 +106,7 @@ public class RealmRepository {
 
             // check here if realm is present, otherwise this method throws an NotFoundException
             RealmRepresentation foundRealm = realmResource.toRepresentation();
+            realms.put(realm, foundRealm);
 
             maybeRealm = Optional.of(foundRealm);
         } catch (javax.ws.rs.NotFoundException e) {
@@ -0,0 +1,143 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.util.CloneUtil;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Server state of the sections of one realm, listed once per import and indexed by natural key.
+ * <p>
+ * A lookup is answered from the index until a write marks its key stale, then it is sent to the server again. Callers
+ * get a deep clone of the indexed entity, so they are free to modify it.
+ */
+public class RealmSnapshot {
+    public enum Section {
+        CLIENTS,
+        AUTHENTICATION_FLOWS,
+        IDENTITY_PROVIDERS,
+        CLIENT_SCOPES
+    }
+
+    private final String realm;
+    private final Map<Section, Index> indexes = new EnumMap<>(Section.class);
+
+    RealmSnapshot(String realm) {
+        this.realm = realm;
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    public boolean contains(Section section) {
+        return indexes.containsKey(section);
+    }
+
+    /**
+     * Only called while the snapshot is loaded, before it is shared with other threads
+     */
+    Index index(Section section) {
+        return indexes.computeIfAbsent(section, s -> new Index());
+    }
+
+    public <T> Optional<T> lookup(Section section, String key, Supplier<Optional<T>> fallback) {
+        Index index = indexes.get(section);
+
+        if (index == null || index.isStale(key)) {
+            return fallback.get();
+        }
+
+        @SuppressWarnings("unchecked")
+        T entity = (T) index.entries.get(key);
+
+        if (entity == null) {
+            return index.absentIsKnown ? Optional.empty() : fallback.get();
+        }
+
+        return Optional.of(CloneUtil.deepClone(entity));
+    }
+
+    public void invalidate(Section section, String key) {
+        Index index = indexes.get(section);
+        if (index != null) index.staleKeys.add(key);
+    }
+
+    /**
+     * Marks every key indexed under the given server id stale. Ids the snapshot has never seen belong to entities
+     * created during the import, their keys are already stale since their creation.
+     */
+    public void invalidateId(Section section, String id) {
+        Index index = indexes.get(section);
+        if (index == null) return;
+
+        List<String> keys = index.keysById.get(id);
+        if (keys != null) index.staleKeys.addAll(keys);
+    }
+
+    /**
+     * For writes that might create further entities as a side effect: indexed keys stay valid, but a key that is not
+     * indexed is looked up on the server again.
+     */
+    public void invalidateAbsent(Section section) {
+        Index index = indexes.get(section);
+        if (index != null) index.absentIsKnown = false;
+    }
+
+    public void invalidate(Section section) {
+        Index index = indexes.get(section);
+        if (index != null) index.stale = true;
+    }
+
+    static class Index {
+        private final Map<String, Object> entries = new HashMap<>();
+        private final Map<String, List<String>> keysById = new HashMap<>();
+        private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean absentIsKnown = true;
+        private volatile boolean stale = false;
+
+        /**
+         * The first entity of a key wins, like the {@code findFirst()} of the lookups it replaces
+         */
+        void put(String key, String id, Object entity) {
+            entries.putIfAbsent(key, entity);
+            if (id != null) keysById.computeIfAbsent(id, k -> new ArrayList<>()).add(key);
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        boolean isStale(String key) {
+            return stale || staleKeys.contains(key);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.ClientScopeRepresentation;
+import org.keycloak.representations.idm.IdentityProviderRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds a {@link RealmSnapshot} per realm while it is imported. Without a loaded snapshot, or for a section that is
+ * not part of it, lookups go to the server and invalidations do nothing.
+ */
+@Service
+public class RealmSnapshotRepository {
+    private static final Logger logger = LoggerFactory.getLogger(RealmSnapshotRepository.class);
+
+    private final RealmRepository realmRepository;
+
+    private final Map<String, RealmSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RealmSnapshotRepository(RealmRepository realmRepository) {
+        this.realmRepository = realmRepository;
+    }
+
+    /**
+     * Lists each of the given sections once, with the same endpoints the lookups use
+     */
+    public void load(String realm, Set<Section> sections) {
+        RealmResource realmResource = realmRepository.loadRealm(realm);
+        RealmSnapshot snapshot = new RealmSnapshot(realm);
+
+        for (Section section : sections) {
+            RealmSnapshot.Index index = snapshot.index(section);
+
+            switch (section) {
+                case CLIENTS:
+                    for (ClientRepresentation client : realmResource.clients().findAll()) {
+                        index.put(client.getClientId(), client.getId(), client);
+                    }
+                    break;
+                case AUTHENTICATION_FLOWS:
+                    // like AuthenticationFlowRepository, the partial export is the only listing of all flows
+                    for (AuthenticationFlowRepresentation flow : realmRepository.partialExport(realm, false, false).getAuthenticationFlows()) {
+                        index.put(flow.getAlias(), flow.getId(), flow);
+                    }
+                    break;
+                case IDENTITY_PROVIDERS:
+                    for (IdentityProviderRepresentation identityProvider : realmResource.identityProviders().findAll()) {
+                        index.put(identityProvider.getAlias(), identityProvider.getInternalId(), identityProvider);
+                    }
+                    break;
+                case CLIENT_SCOPES:
+                    for (ClientScopeRepresentation clientScope : realmResource.clientScopes().findAll()) {
+                        index.put(clientScope.getName(), clientScope.getId(), clientScope);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected section: " + section);
+            }
+
+            logger.debug("Loaded {} {} of realm '{}' into snapshot", index.size(), section, realm);
+        }
+
+        snapshots.put(realm, snapshot);
+    }
+
+    public void drop(String realm) {
+        snapshots.remove(realm);
+    }
+
+    public <T> Optional<T> lookup(String realm, Section section, String key, Supplier<Optional<T>> fallback) {
+        RealmSnapshot snapshot = snapshots.get(realm);
+
+        if (snapshot == null) {
+            return fallback.get();
+        }
+
+        return snapshot.lookup(section, key, fallback);
+    }
+
+    public void invalidate(String realm, Section section, String key) {
+        RealmSnapshot snapshot = snapshots.get(realm);
+        if (snapshot != null) snapshot.invalidate(section, key);
+    }
+
+    public void invalidateId(String realm, Section section, String id) {
+        RealmSnapshot snapshot = snapshots.get(realm);
+        if (snapshot != null) snapshot.invalidateId(section, id);
+    }
+
+    public void invalidateAbsent(String realm, Section section) {
+        RealmSnapshot snapshot = snapshots.get(realm);
+        if (snapshot != null) snapshot.invalidateAbsent(section);
+    }
+
+    public void invalidate(String realm, Section section) {
+        RealmSnapshot snapshot = snapshots.get(realm);
+        if (snapshot != null) snapshot.invalidate(section);
+    }
+}
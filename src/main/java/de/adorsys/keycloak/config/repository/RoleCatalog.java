@@ -0,0 +1,134 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import org.keycloak.admin.client.resource.RolesResource;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import javax.ws.rs.NotFoundException;
+
+/**
+ * Realm roles and client roles of the run, keyed by name and by (clientId, name). The realm roles of a realm, and the
+ * roles of a client, are listed once when the first of them is needed. A role that is not listed, or that was
+ * forgotten since it changed, is fetched on its own; only found roles are kept.
+ * <p>
+ * Roles are shared between callers and must not be modified.
+ */
+@Component
+public class RoleCatalog {
+    private final RealmRepository realmRepository;
+    private final ClientRepository clientRepository;
+    private final SingleFlight singleFlight;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, RoleRepresentation>> realmRoles = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, ConcurrentMap<String, RoleRepresentation>>> clientRoles = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RoleCatalog(RealmRepository realmRepository, ClientRepository clientRepository, SingleFlight singleFlight) {
+        this.realmRepository = realmRepository;
+        this.clientRepository = clientRepository;
+        this.singleFlight = singleFlight;
+    }
+
+    public Optional<RoleRepresentation> findRealmRole(String realm, String name) {
+        ConcurrentMap<String, RoleRepresentation> roles = realmRoles.computeIfAbsent(realm, r -> index(
+                realmRepository.loadRealm(r).roles().list(false)
+        ));
+
+        return find(roles, name, () -> singleFlight.execute(realm, "realm-role", name, () -> fetch(
+                realmRepository.loadRealm(realm).roles(), name
+        )));
+    }
+
+    public Optional<RoleRepresentation> findClientRole(String realm, String clientId, String name) {
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
+
+        ConcurrentMap<String, RoleRepresentation> roles = clientRoles
+                .computeIfAbsent(realm, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(clientId, c -> index(clientRoles(realm, clientUuid).list(false)));
+
+        return find(roles, name, () -> singleFlight.execute(realm, "client-role", clientUuid + "/" + name, () -> fetch(
+                clientRoles(realm, clientUuid), name
+        )));
+    }
+
+    /**
+     * Called after a realm role is created or changed, the next lookup fetches it again
+     */
+    public void forgetRealmRole(String realm, String name) {
+        Map<String, RoleRepresentation> roles = realmRoles.get(realm);
+        if (roles != null) roles.remove(name);
+    }
+
+    public void forgetClientRole(String realm, String clientId, String name) {
+        Map<String, ConcurrentMap<String, RoleRepresentation>> rolesOfClients = clientRoles.get(realm);
+        if (rolesOfClients == null) return;
+
+        Map<String, RoleRepresentation> roles = rolesOfClients.get(clientId);
+        if (roles != null) roles.remove(name);
+    }
+
+    private RolesResource clientRoles(String realm, String clientUuid) {
+        return realmRepository.loadRealm(realm)
+                .clients()
+                .get(clientUuid)
+                .roles();
+    }
+
+    private static Optional<RoleRepresentation> find(
+            Map<String, RoleRepresentation> roles,
+            String name,
+            Supplier<Optional<RoleRepresentation>> fetch
+    ) {
+        RoleRepresentation role = roles.get(name);
+        if (role != null) return Optional.of(role);
+
+        Optional<RoleRepresentation> maybeRole = fetch.get();
+        maybeRole.ifPresent(found -> roles.put(name, found));
+        return maybeRole;
+    }
+
+    private static Optional<RoleRepresentation> fetch(RolesResource rolesResource, String name) {
+        try {
+            return Optional.of(rolesResource.get(name).toRepresentation());
+        } catch (NotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static ConcurrentMap<String, RoleRepresentation> index(List<RoleRepresentation> roles) {
+        ConcurrentMap<String, RoleRepresentation> rolesByName = new ConcurrentHashMap<>();
+
+        for (RoleRepresentation role : roles) {
+            rolesByName.put(role.getName(), role);
+        }
+
+        return rolesByName;
+    }
+}
@@ -36,11 +36,17 @@ public class RoleCompositeRepository {
 
     private final RoleRepository roleRepository;
     private final ClientRepository clientRepository;
+    private final RoleCatalog roleCatalog;
 
     @Autowired
-    public RoleCompositeRepository(RoleRepository roleRepository, ClientRepository clientRepository) {
+    public RoleCompositeRepository(
+            RoleRepository roleRepository,
+            ClientRepository clientRepository,
+            RoleCatalog roleCatalog
+    ) {
         this.roleRepository = roleRepository;
         this.clientRepository = clientRepository;
+        this.roleCatalog = roleCatalog;
     }
 
     public Set<RoleRepresentation> findRealmRoleRealmComposites(String realm, String roleName) {
@@ -112,6 +118,7 @@ public class RoleCompositeRepository {
                 realmComposites,
                 () -> loadRealmRole(realm, roleName)
         );
+        roleCatalog.forgetRealmRole(realm, roleName);
     }
 
     public void addClientRoleRealmComposites(
@@ -125,6 +132,7 @@ public class RoleCompositeRepository {
                 realmComposites,
                 () -> loadClientRole(realm, roleClientId, roleName)
         );
+        roleCatalog.forgetClientRole(realm, roleClientId, roleName);
     }
 
     public void addRealmRoleClientComposites(String realm, String roleName, String compositeClientId, Collection<String> clientRoles) {
@@ -134,6 +142,7 @@ public class RoleCompositeRepository {
                 clientRoles,
                 () -> loadRealmRole(realm, roleName)
         );
+        roleCatalog.forgetRealmRole(realm, roleName);
     }
 
     public void addClientRoleClientComposites(
@@ -149,6 +158,7 @@ public class RoleCompositeRepository {
                 clientComposites,
                 () -> loadClientRole(realm, roleClientId, roleName)
         );
+        roleCatalog.forgetClientRole(realm, roleClientId, roleName);
     }
 
     public void removeRealmRoleRealmComposites(String realm, String roleName, Set<String> realmComposites) {
@@ -157,6 +167,7 @@ public class RoleCompositeRepository {
                 realmComposites,
                 () -> loadRealmRole(realm, roleName)
         );
+        roleCatalog.forgetRealmRole(realm, roleName);
     }
 
     public void removeClientRoleRealmComposites(String realm, String roleClientId, String roleName, Set<String> realmComposites) {
@@ -165,6 +176,7 @@ public class RoleCompositeRepository {
                 realmComposites,
                 () -> loadClientRole(realm, roleClientId, roleName)
         );
+        roleCatalog.forgetClientRole(realm, roleClientId, roleName);
     }
 
     public void removeRealmRoleClientComposites(String realm, String roleName, Map<String, List<String>> clientCompositesToRemove) {
@@ -173,6 +185,7 @@ public class RoleCompositeRepository {
                 clientCompositesToRemove,
                 () -> loadRealmRole(realm, roleName)
         );
+        roleCatalog.forgetRealmRole(realm, roleName);
     }
 
     public void removeRealmRoleClientComposites(String realm, String roleName, String compositeClientId, Collection<String> clientRoleNames) {
@@ -182,6 +195,7 @@ public class RoleCompositeRepository {
                 clientRoleNames,
                 () -> loadRealmRole(realm, roleName)
         );
+        roleCatalog.forgetRealmRole(realm, roleName);
     }
 
     public void removeClientRoleClientComposites(String realm, String roleClientId, String roleName, Map<String, List<String>> clientCompositesToRemove) {
@@ -190,6 +204,7 @@ public class RoleCompositeRepository {
                 clientCompositesToRemove,
                 () -> loadClientRole(realm, roleClientId, roleName)
         );
+        roleCatalog.forgetClientRole(realm, roleClientId, roleName);
     }
 
     public void removeClientRoleClientComposites(String realm, String roleClientId, String roleName, String compositeClientId, Collection<String> clientRoleNames) {
@@ -199,6 +214,7 @@ public class RoleCompositeRepository {
                 clientRoleNames,
                 () -> loadClientRole(realm, roleClientId, roleName)
         );
+        roleCatalog.forgetClientRole(realm, roleClientId, roleName);
     }
 
     private void addRealmComposites(String realm, Set<String> realmComposites, Supplier<RoleResource> roleSupplier) {
@@ -263,9 +279,9 @@ public class RoleCompositeRepository {
 
     private Set<RoleRepresentation> findClientComposites(String realm, String clientId, Supplier<RoleResource> roleSupplier) {
         RoleResource roleResource = roleSupplier.get();
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
 
-        return roleResource.getClientRoleComposites(client.getId());
+        return roleResource.getClientRoleComposites(clientUuid);
     }
 
     private List<RoleRepresentation> findAllClientRoles(String realm, Map<String, List<String>> clientCompositesToRemove) {
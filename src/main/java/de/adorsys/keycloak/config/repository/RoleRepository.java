@@ -22,10 +22,9 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.admin.client.resource.*;
-import org.keycloak.representations.idm.ClientRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
-import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -33,8 +32,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import javax.ws.rs.NotFoundException;
 
 @Service
 public class RoleRepository {
@@ -42,36 +41,37 @@ public class RoleRepository {
     private final RealmRepository realmRepository;
     private final ClientRepository clientRepository;
     private final UserRepository userRepository;
+    private final AsyncWriteExecutor asyncWriteExecutor;
+    private final RoleCatalog roleCatalog;
 
     @Autowired
     public RoleRepository(
             RealmRepository realmRepository,
             ClientRepository clientRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            AsyncWriteExecutor asyncWriteExecutor,
+            RoleCatalog roleCatalog
     ) {
         this.realmRepository = realmRepository;
         this.clientRepository = clientRepository;
         this.userRepository = userRepository;
+        this.asyncWriteExecutor = asyncWriteExecutor;
+        this.roleCatalog = roleCatalog;
     }
 
+    /**
+     * Returns a copy of the role, to compare and patch it
+     */
     public Optional<RoleRepresentation> tryToFindRealmRole(String realm, String name) {
-        Optional<RoleRepresentation> maybeRole;
-
-        RolesResource rolesResource = realmRepository.loadRealm(realm).roles();
-        RoleResource roleResource = rolesResource.get(name);
-
-        try {
-            maybeRole = Optional.of(roleResource.toRepresentation());
-        } catch (NotFoundException e) {
-            maybeRole = Optional.empty();
-        }
-
-        return maybeRole;
+        return roleCatalog.findRealmRole(realm, name)
+                .map(CloneUtil::deepClone);
     }
 
     public void createRealmRole(String realm, RoleRepresentation role) {
         RolesResource rolesResource = realmRepository.loadRealm(realm).roles();
         rolesResource.create(role);
+
+        roleCatalog.forgetRealmRole(realm, role.getName());
     }
 
     public void updateRealmRole(String realm, RoleRepresentation roleToUpdate) {
@@ -80,10 +80,11 @@ public class RoleRepository {
                 .get(roleToUpdate.getName());
 
         roleResource.update(roleToUpdate);
+        roleCatalog.forgetRealmRole(realm, roleToUpdate.getName());
     }
 
     public RoleRepresentation findRealmRole(String realm, String roleName) {
-        return tryToFindRealmRole(realm, roleName)
+        return roleCatalog.findRealmRole(realm, roleName)
                 .orElseThrow(
                         () -> new KeycloakRepositoryException(
                                 "Cannot find realm role '" + roleName + "' within realm '" + realm + "'"
@@ -97,76 +98,59 @@ public class RoleRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns a copy of the role, to compare and patch it
+     */
     public final Optional<RoleRepresentation> tryToFindClientRole(String realm, String clientId, String roleName) {
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
-        RealmResource realmResource = realmRepository.loadRealm(realm);
-
-        List<RoleRepresentation> clientRoles = realmResource.clients()
-                .get(client.getId())
-                .roles()
-                .list();
-
-        return clientRoles.stream()
-                .filter(r -> r.getName().equals(roleName))
-                .findFirst();
+        return roleCatalog.findClientRole(realm, clientId, roleName)
+                .map(CloneUtil::deepClone);
     }
 
     public RoleRepresentation findClientRole(String realm, String clientId, String roleName) {
-        return tryToFindClientRole(realm, clientId, roleName)
+        return roleCatalog.findClientRole(realm, clientId, roleName)
                 .orElse(null);
     }
 
     public List<RoleRepresentation> searchClientRoles(String realm, String clientId, List<String> roles) {
-        ClientRepresentation foundClient = clientRepository.getClientByClientId(realm, clientId);
-
-        ClientResource clientResource = realmRepository.loadRealm(realm)
-                .clients()
-                .get(foundClient.getId());
-
         return roles.stream()
-                .map(role -> clientResource.roles()
-                        .get(role)
-                        .toRepresentation()
+                .map(role -> roleCatalog.findClientRole(realm, clientId, role)
+                        .orElseThrow(() -> new ImportProcessingException("Could not find client role '" + role + "' of client '" + clientId + "' in realm '" + realm + "'!"))
                 ).collect(Collectors.toList());
     }
 
     public void createClientRole(String realm, String clientId, RoleRepresentation role) {
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
         RolesResource rolesResource = realmRepository.loadRealm(realm)
                 .clients()
-                .get(client.getId())
+                .get(clientUuid)
                 .roles();
 
         rolesResource.create(role);
+        roleCatalog.forgetClientRole(realm, clientId, role.getName());
     }
 
     public void updateClientRole(String realm, String clientId, RoleRepresentation roleToUpdate) {
         RoleResource roleResource = loadClientRole(realm, clientId, roleToUpdate.getName());
+
         roleResource.update(roleToUpdate);
+        roleCatalog.forgetClientRole(realm, clientId, roleToUpdate.getName());
     }
 
     public List<RoleRepresentation> searchRealmRoles(String realmName, List<String> roleNames) {
         List<RoleRepresentation> roles = new ArrayList<>();
-        RealmResource realm = realmRepository.loadRealm(realmName);
 
         for (String roleName : roleNames) {
-            try {
-                RoleRepresentation role = realm.roles().get(roleName).toRepresentation();
+            RoleRepresentation role = roleCatalog.findRealmRole(realmName, roleName)
+                    .orElseThrow(() -> new ImportProcessingException("Could not find role '" + roleName + "' in realm '" + realmName + "'!"));
 
-                roles.add(role);
-            } catch (NotFoundException e) {
-                throw new ImportProcessingException("Could not find role '" + roleName + "' in realm '" + realmName + "'!");
-            }
+            roles.add(role);
         }
 
         return roles;
     }
 
     public List<String> getUserRealmLevelRoles(String realm, String username) {
-        UserRepresentation user = userRepository.findUser(realm, username);
-        UserResource userResource = realmRepository.loadRealm(realm)
-                .users()
-                .get(user.getId());
+        UserResource userResource = userRepository.getUserResource(realm, username);
 
         List<RoleRepresentation> roles = userResource.roles()
                 .realmLevel()
@@ -188,36 +172,68 @@ public class RoleRepository {
     }
 
     public void addClientRolesToUser(String realm, String username, String clientId, List<RoleRepresentation> clientRoles) {
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
         UserResource userResource = userRepository.getUserResource(realm, username);
 
         RoleScopeResource userClientRoles = userResource.roles()
-                .clientLevel(client.getId());
+                .clientLevel(clientUuid);
 
         userClientRoles.add(clientRoles);
     }
 
     public void removeClientRolesForUser(String realm, String username, String clientId, List<RoleRepresentation> clientRoles) {
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
         UserResource userResource = userRepository.getUserResource(realm, username);
 
         RoleScopeResource userClientRoles = userResource.roles()
-                .clientLevel(client.getId());
+                .clientLevel(clientUuid);
 
         userClientRoles.remove(clientRoles);
     }
 
+    public CompletableFuture<Void> addRealmRolesToUserAsync(String realm, String username, List<RoleRepresentation> realmRoles) {
+        return asyncWriteExecutor.run(
+                "Cannot add realm-level roles " + roleNames(realmRoles) + " to user '" + username + "' in realm '" + realm + "'",
+                () -> addRealmRolesToUser(realm, username, realmRoles)
+        );
+    }
+
+    public CompletableFuture<Void> removeRealmRolesForUserAsync(String realm, String username, List<RoleRepresentation> realmRoles) {
+        return asyncWriteExecutor.run(
+                "Cannot remove realm-level roles " + roleNames(realmRoles) + " from user '" + username + "' in realm '" + realm + "'",
+                () -> removeRealmRolesForUser(realm, username, realmRoles)
+        );
+    }
+
+    public CompletableFuture<Void> addClientRolesToUserAsync(String realm, String username, String clientId, List<RoleRepresentation> clientRoles) {
+        return asyncWriteExecutor.run(
+                "Cannot add client-level roles " + roleNames(clientRoles) + " for client '" + clientId + "' to user '" + username + "' in realm '" + realm + "'",
+                () -> addClientRolesToUser(realm, username, clientId, clientRoles)
+        );
+    }
+
+    public CompletableFuture<Void> removeClientRolesForUserAsync(String realm, String username, String clientId, List<RoleRepresentation> clientRoles) {
+        return asyncWriteExecutor.run(
+                "Cannot remove client-level roles " + roleNames(clientRoles) + " for client '" + clientId + "' from user '" + username + "' in realm '" + realm + "'",
+                () -> removeClientRolesForUser(realm, username, clientId, clientRoles)
+        );
+    }
+
     public List<String> getUserClientLevelRoles(String realm, String username, String clientId) {
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, clientId);
+        String clientUuid = clientRepository.getClientUuid(realm, clientId);
         UserResource userResource = userRepository.getUserResource(realm, username);
 
         List<RoleRepresentation> roles = userResource.roles()
-                .clientLevel(client.getId())
+                .clientLevel(clientUuid)
                 .listEffective();
 
         return roles.stream().map(RoleRepresentation::getName).collect(Collectors.toList());
     }
 
+    private static List<String> roleNames(List<RoleRepresentation> roles) {
+        return roles.stream().map(RoleRepresentation::getName).collect(Collectors.toList());
+    }
+
     final RoleResource loadRealmRole(String realm, String roleName) {
         RealmResource realmResource = realmRepository.loadRealm(realm);
         return realmResource
@@ -226,11 +242,11 @@ public class RoleRepository {
     }
 
     final RoleResource loadClientRole(String realm, String roleClientId, String roleName) {
-        ClientRepresentation client = clientRepository.getClientByClientId(realm, roleClientId);
+        String clientUuid = clientRepository.getClientUuid(realm, roleClientId);
 
         return realmRepository.loadRealm(realm)
                 .clients()
-                .get(client.getId())
+                .get(clientUuid)
                 .roles()
                 .get(roleName);
     }
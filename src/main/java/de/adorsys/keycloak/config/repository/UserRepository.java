@@ -31,7 +31,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.Response;
 
@@ -39,10 +43,20 @@ import javax.ws.rs.core.Response;
 public class UserRepository {
 
     private final RealmRepository realmRepository;
+    private final SingleFlight singleFlight;
+    private final AsyncWriteExecutor asyncWriteExecutor;
+
+    /**
+     * Ids of the users found or created during the run, per realm and lower-case username. Users are never deleted or
+     * renamed by an import, so an id stays valid for the whole run.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> userIds = new ConcurrentHashMap<>();
 
     @Autowired
-    public UserRepository(RealmRepository realmRepository) {
+    public UserRepository(RealmRepository realmRepository, SingleFlight singleFlight, AsyncWriteExecutor asyncWriteExecutor) {
         this.realmRepository = realmRepository;
+        this.singleFlight = singleFlight;
+        this.asyncWriteExecutor = asyncWriteExecutor;
     }
 
     public Optional<UserRepresentation> tryToFindUser(String realm, String username) {
@@ -59,13 +73,22 @@ public class UserRepository {
         return maybeUser;
     }
 
+    /**
+     * Searches the user only if its id is not known yet
+     */
     final UserResource getUserResource(String realm, String username) {
-        UserRepresentation foundUser = findUser(realm, username);
-        return realmRepository.loadRealm(realm).users().get(foundUser.getId());
+        String id = userIds(realm).get(userIdKey(username));
+
+        if (id == null) {
+            id = findUser(realm, username).getId();
+        }
+
+        return realmRepository.loadRealm(realm).users().get(id);
     }
 
     public UserRepresentation findUser(String realm, String username) {
-        List<UserRepresentation> foundUsers = realmRepository.loadRealm(realm).users().search(username);
+        List<UserRepresentation> foundUsers = singleFlight.execute(realm, "user", username,
+                () -> realmRepository.loadRealm(realm).users().search(username));
         //TODO: Remove when https://github.com/keycloak/keycloak/pull/6926 is merged
         List<UserRepresentation> filteredUsers = foundUsers.stream()
                 .filter(u -> u.getUsername().equalsIgnoreCase(username)).collect(Collectors.toList());
@@ -74,7 +97,10 @@ public class UserRepository {
             throw new KeycloakRepositoryException("Cannot find user '" + username + "' in realm '" + realm + "'");
         }
 
-        return filteredUsers.get(0);
+        UserRepresentation user = filteredUsers.get(0);
+        userIds(realm).put(userIdKey(username), user.getId());
+
+        return user;
     }
 
     public void create(String realm, UserRepresentation userToCreate) {
@@ -82,8 +108,11 @@ public class UserRepository {
         UsersResource usersResource = realmResource.users();
 
         Response response = usersResource.create(userToCreate);
+        String id = ResponseUtil.getCreatedId(response);
 
-        ResponseUtil.validate(response);
+        if (id != null) {
+            userIds(realm).put(userIdKey(userToCreate.getUsername()), id);
+        }
     }
 
     public void updateUser(String realm, UserRepresentation user) {
@@ -91,8 +120,25 @@ public class UserRepository {
         userResource.update(user);
     }
 
+    public CompletableFuture<Void> updateUserAsync(String realm, UserRepresentation user) {
+        UserResource userResource = getUserResource(realm, user.getUsername());
+
+        return asyncWriteExecutor.run(
+                "Cannot update user '" + user.getUsername() + "' in realm '" + realm + "'",
+                () -> userResource.update(user)
+        );
+    }
+
     public List<GroupRepresentation> getGroups(String realm, UserRepresentation user) {
         UserResource userResource = getUserResource(realm, user.getUsername());
         return userResource.groups();
     }
+
+    private ConcurrentMap<String, String> userIds(String realm) {
+        return userIds.computeIfAbsent(realm, r -> new ConcurrentHashMap<>());
+    }
+
+    private static String userIdKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,78 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Collects the pending writes of an import stage. {@link #await(String)} waits for all of them and fails with the
+ * messages of all failed writes, not only the first one.
+ */
+public class WriteBatch {
+    private final List<CompletableFuture<?>> writes = new ArrayList<>();
+
+    public synchronized void add(CompletableFuture<?> write) {
+        writes.add(write);
+    }
+
+    public void await(String stage) {
+        List<CompletableFuture<?>> pendingWrites;
+        synchronized (this) {
+            pendingWrites = new ArrayList<>(writes);
+            writes.clear();
+        }
+
+        List<Throwable> failures = new ArrayList<>();
+        for (CompletableFuture<?> write : pendingWrites) {
+            try {
+                write.join();
+            } catch (CompletionException e) {
+                failures.add(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        if (failures.isEmpty()) return;
+
+        if (failures.size() == 1 && failures.get(0) instanceof RuntimeException) {
+            throw (RuntimeException) failures.get(0);
+        }
+
+        StringBuilder message = new StringBuilder()
+                .append(failures.size()).append(" of ").append(pendingWrites.size())
+                .append(" writes failed in ").append(stage).append(':');
+
+        for (Throwable failure : failures) {
+            message.append("\n - ").append(failure.getMessage());
+        }
+
+        ImportProcessingException exception = new ImportProcessingException(message.toString(), failures.get(0));
+        for (Throwable failure : failures.subList(1, failures.size())) {
+            exception.addSuppressed(failure);
+        }
+
+        throw exception;
+    }
+}
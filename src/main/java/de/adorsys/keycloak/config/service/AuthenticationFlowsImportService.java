@@ -28,6 +28,8 @@ import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManage
 import de.adorsys.keycloak.config.repository.AuthenticationFlowRepository;
 import de.adorsys.keycloak.config.repository.ExecutionFlowRepository;
 import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
 import de.adorsys.keycloak.config.util.AuthenticationFlowUtil;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.AuthenticationExecutionInfoRepresentation;
@@ -61,6 +63,7 @@ public class AuthenticationFlowsImportService {
     private final UsedAuthenticationFlowWorkaroundFactory workaroundFactory;
 
     private final ImportConfigProperties importConfigProperties;
+    private final EntityFingerprintService entityFingerprintService;
 
     @Autowired
     public AuthenticationFlowsImportService(
@@ -69,7 +72,8 @@ public class AuthenticationFlowsImportService {
             ExecutionFlowsImportService executionFlowsImportService,
             ExecutionFlowRepository executionFlowRepository,
             UsedAuthenticationFlowWorkaroundFactory workaroundFactory,
-            ImportConfigProperties importConfigProperties
+            ImportConfigProperties importConfigProperties,
+            EntityFingerprintService entityFingerprintService
     ) {
         this.realmRepository = realmRepository;
         this.authenticationFlowRepository = authenticationFlowRepository;
@@ -77,6 +81,7 @@ public class AuthenticationFlowsImportService {
         this.executionFlowRepository = executionFlowRepository;
         this.workaroundFactory = workaroundFactory;
         this.importConfigProperties = importConfigProperties;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     /**
@@ -92,8 +97,15 @@ public class AuthenticationFlowsImportService {
         if (authenticationFlows == null) return;
 
         List<AuthenticationFlowRepresentation> topLevelFlowsToImport = AuthenticationFlowUtil.getTopLevelFlows(realmImport);
-        createOrUpdateTopLevelFlows(realmImport, topLevelFlowsToImport);
-        updateBuiltInFlows(realmImport, authenticationFlows);
+        List<AuthenticationFlowRepresentation> changedTopLevelFlows = entityFingerprintService.filterChanged(
+                realmImport.getRealm(), Entity.AUTHENTICATION_FLOWS, topLevelFlowsToImport, AuthenticationFlowRepresentation::getAlias);
+
+        List<AuthenticationFlowRepresentation> changedFlows = authenticationFlows.stream()
+                .filter(flow -> !flow.isTopLevel() || changedTopLevelFlows.contains(flow))
+                .collect(Collectors.toList());
+
+        createOrUpdateTopLevelFlows(realmImport, changedTopLevelFlows);
+        updateBuiltInFlows(realmImport, changedFlows);
         setupFlowsInRealm(realmImport);
 
         if (importConfigProperties.getManaged().getAuthenticationFlow() == ImportManagedPropertiesValues.FULL) {
@@ -185,17 +197,20 @@ public class AuthenticationFlowsImportService {
         );
 
         return maybeNonTopLevelFlow
-                .map(authenticationExecutionInfoRepresentation -> hasExistingNonTopLevelFlowToBeUpdated(realmImport, nonTopLevelFlowToImport, authenticationExecutionInfoRepresentation))
+                .map(authenticationExecutionInfoRepresentation -> hasExistingNonTopLevelFlowToBeUpdated(
+                        realmImport, topLevelFlowToImport, nonTopLevelFlowToImport, authenticationExecutionInfoRepresentation
+                ))
                 .orElse(true);
     }
 
     private boolean hasExistingNonTopLevelFlowToBeUpdated(
             RealmImport realmImport,
+            AuthenticationFlowRepresentation topLevelFlowToImport,
             AuthenticationFlowRepresentation nonTopLevelFlowToImport,
             AuthenticationExecutionInfoRepresentation existingNonTopLevelExecutionFlow
     ) {
-        AuthenticationFlowRepresentation existingNonTopLevelFlow = authenticationFlowRepository.getFlowById(
-                realmImport.getRealm(), existingNonTopLevelExecutionFlow.getFlowId()
+        AuthenticationFlowRepresentation existingNonTopLevelFlow = executionFlowRepository.getNonTopLevelFlow(
+                realmImport.getRealm(), topLevelFlowToImport.getAlias(), existingNonTopLevelExecutionFlow
         );
 
         return hasAuthenticationFlowToBeUpdated(nonTopLevelFlowToImport, existingNonTopLevelFlow);
@@ -24,6 +24,9 @@ import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.repository.ClientRepository;
+import de.adorsys.keycloak.config.repository.WriteBatch;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import de.adorsys.keycloak.config.util.ProtocolMapperUtil;
 import de.adorsys.keycloak.config.util.ResponseUtil;
@@ -52,13 +55,16 @@ public class ClientImportService {
 
     private final ClientRepository clientRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final EntityFingerprintService entityFingerprintService;
 
     @Autowired
     public ClientImportService(
             ClientRepository clientRepository,
-            ImportConfigProperties importConfigProperties) {
+            ImportConfigProperties importConfigProperties,
+            EntityFingerprintService entityFingerprintService) {
         this.clientRepository = clientRepository;
         this.importConfigProperties = importConfigProperties;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -67,7 +73,7 @@ public class ClientImportService {
             return;
         }
 
-        createOrUpdateClients(realmImport, clients);
+        createOrUpdateClients(realmImport, getChangedClients(realmImport, clients));
     }
 
     public void importAuthorizationSettings(RealmImport realmImport) {
@@ -76,42 +82,51 @@ public class ClientImportService {
             return;
         }
 
-        List<ClientRepresentation> clientsWithAuthorization = clients.stream()
+        List<ClientRepresentation> clientsWithAuthorization = getChangedClients(realmImport, clients).stream()
                 .filter(client -> client.getAuthorizationSettings() != null)
                 .collect(Collectors.toList());
 
         updateClientAuthorizationSettings(realmImport, clientsWithAuthorization);
     }
 
+    private List<ClientRepresentation> getChangedClients(RealmImport realmImport, List<ClientRepresentation> clients) {
+        return entityFingerprintService.filterChanged(realmImport.getRealm(), Entity.CLIENTS, clients, EntityFingerprintService::clientKey);
+    }
+
     private void createOrUpdateClients(RealmImport realmImport, List<ClientRepresentation> clients) {
-        Consumer<ClientRepresentation> loop = client -> createOrUpdateClient(realmImport, client);
+        // new protocol mappers are created without waiting for them, they are awaited once all clients are done
+        WriteBatch writes = new WriteBatch();
+
+        Consumer<ClientRepresentation> loop = client -> createOrUpdateClient(realmImport, client, writes);
         if (importConfigProperties.isParallel()) {
             clients.parallelStream().forEach(loop);
         } else {
             clients.forEach(loop);
         }
+
+        writes.await("clients of realm '" + realmImport.getRealm() + "'");
     }
 
-    private void createOrUpdateClient(RealmImport realmImport, ClientRepresentation client) {
+    private void createOrUpdateClient(RealmImport realmImport, ClientRepresentation client, WriteBatch writes) {
         String clientId = client.getClientId();
         String realm = realmImport.getRealm();
 
         Optional<ClientRepresentation> maybeClient = clientRepository.tryToFindClient(realm, clientId);
 
         if (maybeClient.isPresent()) {
-            updateClientIfNeeded(realm, client, maybeClient.get());
+            updateClientIfNeeded(realm, client, maybeClient.get(), writes);
         } else {
             logger.debug("Create client '{}' in realm '{}'", clientId, realm);
             createClient(realm, client);
         }
     }
 
-    private void updateClientIfNeeded(String realm, ClientRepresentation clientToUpdate, ClientRepresentation existingClient) {
+    private void updateClientIfNeeded(String realm, ClientRepresentation clientToUpdate, ClientRepresentation existingClient, WriteBatch writes) {
         ClientRepresentation patchedClient = CloneUtil.patch(existingClient, clientToUpdate, "id", "access", "authorizationSettings");
 
         if (!isClientEqual(realm, existingClient, patchedClient)) {
             logger.debug("Update client '{}' in realm '{}'", clientToUpdate.getClientId(), realm);
-            updateClient(realm, patchedClient);
+            updateClient(realm, patchedClient, writes);
         } else {
             logger.debug("No need to update client '{}' in realm '{}'", clientToUpdate.getClientId(), realm);
         }
@@ -140,7 +155,7 @@ public class ClientImportService {
         return clientSecret.equals(patchedClientSecret);
     }
 
-    private void updateClient(String realm, ClientRepresentation patchedClient) {
+    private void updateClient(String realm, ClientRepresentation patchedClient, WriteBatch writes) {
         try {
             clientRepository.update(realm, patchedClient);
         } catch (WebApplicationException error) {
@@ -151,11 +166,11 @@ public class ClientImportService {
         List<ProtocolMapperRepresentation> protocolMappers = patchedClient.getProtocolMappers();
 
         if (protocolMappers != null) {
-            updateProtocolMappers(realm, patchedClient.getId(), protocolMappers);
+            updateProtocolMappers(realm, patchedClient.getId(), protocolMappers, writes);
         }
     }
 
-    private void updateProtocolMappers(String realm, String clientId, List<ProtocolMapperRepresentation> protocolMappers) {
+    private void updateProtocolMappers(String realm, String clientId, List<ProtocolMapperRepresentation> protocolMappers, WriteBatch writes) {
         ClientRepresentation existingClient = clientRepository.getClientById(realm, clientId);
 
         List<ProtocolMapperRepresentation> existingProtocolMappers = existingClient.getProtocolMappers();
@@ -164,7 +179,7 @@ public class ClientImportService {
         List<ProtocolMapperRepresentation> protocolMappersToRemove = ProtocolMapperUtil.estimateProtocolMappersToRemove(protocolMappers, existingProtocolMappers);
         List<ProtocolMapperRepresentation> protocolMappersToUpdate = ProtocolMapperUtil.estimateProtocolMappersToUpdate(protocolMappers, existingProtocolMappers);
 
-        clientRepository.addProtocolMappers(realm, clientId, protocolMappersToAdd);
+        writes.add(clientRepository.addProtocolMappersAsync(realm, clientId, protocolMappersToAdd));
         clientRepository.removeProtocolMappers(realm, clientId, protocolMappersToRemove);
         clientRepository.updateProtocolMappers(realm, clientId, protocolMappersToUpdate);
     }
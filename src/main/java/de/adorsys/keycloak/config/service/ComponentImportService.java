@@ -24,6 +24,8 @@ import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
 import de.adorsys.keycloak.config.repository.ComponentRepository;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
 import de.adorsys.keycloak.config.service.state.StateService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.common.util.MultivaluedHashMap;
@@ -34,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -45,12 +48,18 @@ public class ComponentImportService {
     private final ComponentRepository componentRepository;
     private final ImportConfigProperties importConfigProperties;
     private final StateService stateService;
+    private final EntityFingerprintService entityFingerprintService;
 
     @Autowired
-    public ComponentImportService(ComponentRepository componentRepository, ImportConfigProperties importConfigProperties, StateService stateService) {
+    public ComponentImportService(
+            ComponentRepository componentRepository,
+            ImportConfigProperties importConfigProperties,
+            StateService stateService,
+            EntityFingerprintService entityFingerprintService) {
         this.componentRepository = componentRepository;
         this.importConfigProperties = importConfigProperties;
         this.stateService = stateService;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -61,13 +70,30 @@ public class ComponentImportService {
         }
 
         String realm = realmImport.getRealm();
-        importComponents(realm, components);
+        importComponents(realm, getChangedComponents(realm, components));
 
         if (importConfigProperties.getManaged().getComponent() == ImportManagedPropertiesValues.FULL) {
             deleteComponentsMissingInImport(realm, components, null);
         }
     }
 
+    private Map<String, List<ComponentExportRepresentation>> getChangedComponents(
+            String realm,
+            Map<String, List<ComponentExportRepresentation>> components
+    ) {
+        Map<String, List<ComponentExportRepresentation>> changedComponents = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<ComponentExportRepresentation>> entry : components.entrySet()) {
+            String providerType = entry.getKey();
+            List<ComponentExportRepresentation> changedComponentsOfType = entityFingerprintService.filterChanged(realm, Entity.COMPONENTS,
+                    entry.getValue(), component -> EntityFingerprintService.componentKey(providerType, component));
+
+            if (!changedComponentsOfType.isEmpty()) changedComponents.put(providerType, changedComponentsOfType);
+        }
+
+        return changedComponents;
+    }
+
     private void importComponents(String realm, Map<String, List<ComponentExportRepresentation>> componentsToImport) {
         for (Map.Entry<String, List<ComponentExportRepresentation>> entry : componentsToImport.entrySet()) {
             createOrUpdateComponents(realm, entry.getKey(), entry.getValue());
@@ -81,7 +107,7 @@ public class ComponentImportService {
     }
 
     private void createOrUpdateComponent(String realm, String providerType, ComponentExportRepresentation componentToImport) {
-        Optional<ComponentRepresentation> maybeComponent = componentRepository.tryToGetComponent(realm, componentToImport.getName(), componentToImport.getSubType());
+        Optional<ComponentRepresentation> maybeComponent = componentRepository.tryToGetComponent(realm, providerType, componentToImport.getName(), componentToImport.getSubType());
 
         if (maybeComponent.isPresent()) {
             updateComponentIfNeeded(realm, providerType, componentToImport, maybeComponent.get());
@@ -118,7 +144,13 @@ public class ComponentImportService {
         componentRepository.create(realm, subComponentToAdd);
 
         MultivaluedHashMap<String, ComponentExportRepresentation> subComponents = component.getSubComponents();
-        ComponentRepresentation exitingComponent = componentRepository.get(realm, providerType, component.getName());
+        ComponentRepresentation exitingComponent = componentRepository.get(
+                realm,
+                parentId,
+                subComponentToAdd.getProviderType(),
+                subComponentToAdd.getSubType(),
+                subComponentToAdd.getName()
+        );
 
         if (!subComponents.isEmpty()) {
             createOrUpdateSubComponents(realm, subComponents, exitingComponent.getId());
@@ -207,7 +239,7 @@ public class ComponentImportService {
     }
 
     private void createOrUpdateSubComponent(String realm, String parentId, String providerType, ComponentExportRepresentation subComponent) {
-        Optional<ComponentRepresentation> maybeComponent = componentRepository.tryToGetSubComponent(realm, parentId, subComponent.getSubType(), subComponent.getName());
+        Optional<ComponentRepresentation> maybeComponent = componentRepository.tryToGetSubComponent(realm, parentId, providerType, subComponent.getSubType(), subComponent.getName());
 
         if (maybeComponent.isPresent()) {
             updateComponentIfNeeded(realm, providerType, subComponent, maybeComponent.get());
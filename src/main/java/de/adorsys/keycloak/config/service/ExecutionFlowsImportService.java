@@ -119,7 +119,7 @@ public class ExecutionFlowsImportService {
         executionToCreate.setPriority(executionToImport.getPriority());
         executionToCreate.setAutheticatorFlow(false);
 
-        executionFlowRepository.createTopLevelFlowExecution(realm.getRealm(), executionToCreate);
+        executionFlowRepository.createTopLevelFlowExecution(realm.getRealm(), existingTopLevelFlow.getAlias(), executionToCreate);
 
         if (executionToImport.getAuthenticatorConfig() != null) {
             createAuthenticatorConfig(realm, existingTopLevelFlow, executionToImport);
@@ -24,6 +24,8 @@ import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
 import de.adorsys.keycloak.config.repository.GroupRepository;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.slf4j.Logger;
@@ -39,10 +41,15 @@ public class GroupImportService {
 
     private final GroupRepository groupRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final EntityFingerprintService entityFingerprintService;
 
-    public GroupImportService(GroupRepository groupRepository, ImportConfigProperties importConfigProperties) {
+    public GroupImportService(
+            GroupRepository groupRepository,
+            ImportConfigProperties importConfigProperties,
+            EntityFingerprintService entityFingerprintService) {
         this.groupRepository = groupRepository;
         this.importConfigProperties = importConfigProperties;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     public void importGroups(RealmImport realmImport) {
@@ -55,7 +62,7 @@ public class GroupImportService {
 
         List<GroupRepresentation> existingGroups = groupRepository.getGroups(realm);
 
-        createOrUpdateGroups(groups, realm);
+        createOrUpdateGroups(entityFingerprintService.filterChanged(realm, Entity.GROUPS, groups, GroupRepresentation::getName), realm);
 
         if (importConfigProperties.getManaged().getGroup() == ImportManagedPropertiesValues.FULL) {
             deleteGroupsMissingInImport(realm, groups, existingGroups);
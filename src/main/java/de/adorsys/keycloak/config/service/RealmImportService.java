@@ -22,9 +22,12 @@ package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
-import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
+import de.adorsys.keycloak.config.repository.RealmSnapshotRepository;
 import de.adorsys.keycloak.config.service.checksum.ChecksumService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
 import de.adorsys.keycloak.config.service.state.StateService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.RealmRepresentation;
@@ -33,6 +36,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
 @Service
 public class RealmImportService {
     static final String[] ignoredPropertiesForCreation = new String[]{
@@ -73,8 +80,8 @@ public class RealmImportService {
             "resetCredentialsFlow",
     };
     private static final Logger logger = LoggerFactory.getLogger(RealmImportService.class);
-    private final KeycloakProvider keycloakProvider;
     private final RealmRepository realmRepository;
+    private final RealmSnapshotRepository realmSnapshotRepository;
 
     private final UserImportService userImportService;
     private final RoleImportService roleImportService;
@@ -92,13 +99,15 @@ public class RealmImportService {
     private final ImportConfigProperties importProperties;
 
     private final ChecksumService checksumService;
+    private final EntityFingerprintService entityFingerprintService;
     private final StateService stateService;
+    private final DeadlineService deadlineService;
 
     @Autowired
     public RealmImportService(
             ImportConfigProperties importProperties,
-            KeycloakProvider keycloakProvider,
             RealmRepository realmRepository,
+            RealmSnapshotRepository realmSnapshotRepository,
             UserImportService userImportService,
             RoleImportService roleImportService,
             ClientImportService clientImportService,
@@ -112,10 +121,12 @@ public class RealmImportService {
             ScopeMappingImportService scopeMappingImportService,
             IdentityProviderImportService identityProviderImportService,
             ChecksumService checksumService,
-            StateService stateService) {
+            EntityFingerprintService entityFingerprintService,
+            StateService stateService,
+            DeadlineService deadlineService) {
         this.importProperties = importProperties;
-        this.keycloakProvider = keycloakProvider;
         this.realmRepository = realmRepository;
+        this.realmSnapshotRepository = realmSnapshotRepository;
         this.userImportService = userImportService;
         this.roleImportService = roleImportService;
         this.clientImportService = clientImportService;
@@ -129,7 +140,9 @@ public class RealmImportService {
         this.scopeMappingImportService = scopeMappingImportService;
         this.identityProviderImportService = identityProviderImportService;
         this.checksumService = checksumService;
+        this.entityFingerprintService = entityFingerprintService;
         this.stateService = stateService;
+        this.deadlineService = deadlineService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -140,8 +153,6 @@ public class RealmImportService {
         } else {
             createRealm(realmImport);
         }
-
-        keycloakProvider.close();
     }
 
     private void updateRealmIfNecessary(RealmImport realmImport) {
@@ -162,18 +173,18 @@ public class RealmImportService {
         RealmRepresentation realmForCreation = CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForCreation);
         realmRepository.create(realmForCreation);
 
-        stateService.loadState(realmImport);
+        importStage(realmImport, "state", stateService::loadState);
 
-        groupImportService.importGroups(realmImport);
-        clientImportService.importAuthorizationSettings(realmImport);
-        userImportService.doImport(realmImport);
-        authenticationFlowsImportService.doImport(realmImport);
-        componentImportService.doImport(realmImport);
-        identityProviderImportService.doImport(realmImport);
-        customImportService.doImport(realmImport);
+        importStage(realmImport, "groups", groupImportService::importGroups);
+        importStage(realmImport, "authorization settings", clientImportService::importAuthorizationSettings);
+        importStage(realmImport, "users", userImportService::doImport);
+        importStage(realmImport, "authentication flows", authenticationFlowsImportService::doImport);
+        importStage(realmImport, "components", componentImportService::doImport);
+        importStage(realmImport, "identity providers", identityProviderImportService::doImport);
+        importStage(realmImport, "custom import", customImportService::doImport);
 
-        stateService.doImport(realmImport);
-        checksumService.doImport(realmImport);
+        importStage(realmImport, "save state", stateService::doImport);
+        importStage(realmImport, "save checksum", checksumService::doImport);
     }
 
     private void updateRealm(RealmImport realmImport) {
@@ -182,23 +193,55 @@ public class RealmImportService {
         RealmRepresentation realmToUpdate = CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForUpdate);
         realmRepository.update(realmToUpdate);
 
-        stateService.loadState(realmImport);
-
-        clientImportService.doImport(realmImport);
-        roleImportService.doImport(realmImport);
-        groupImportService.importGroups(realmImport);
-        clientScopeImportService.importClientScopes(realmImport);
-        clientImportService.importAuthorizationSettings(realmImport);
-        userImportService.doImport(realmImport);
-        requiredActionsImportService.doImport(realmImport);
-        authenticationFlowsImportService.doImport(realmImport);
-        authenticatorConfigImportService.doImport(realmImport);
-        componentImportService.doImport(realmImport);
-        scopeMappingImportService.doImport(realmImport);
-        identityProviderImportService.doImport(realmImport);
-        customImportService.doImport(realmImport);
-
-        stateService.doImport(realmImport);
-        checksumService.doImport(realmImport);
+        importStage(realmImport, "snapshot", this::loadSnapshot);
+        importStage(realmImport, "fingerprints", entityFingerprintService::load);
+
+        try {
+            importStage(realmImport, "state", stateService::loadState);
+
+            importStage(realmImport, "clients", clientImportService::doImport);
+            importStage(realmImport, "roles", roleImportService::doImport);
+            importStage(realmImport, "groups", groupImportService::importGroups);
+            importStage(realmImport, "client scopes", clientScopeImportService::importClientScopes);
+            importStage(realmImport, "authorization settings", clientImportService::importAuthorizationSettings);
+            importStage(realmImport, "users", userImportService::doImport);
+            importStage(realmImport, "required actions", requiredActionsImportService::doImport);
+            importStage(realmImport, "authentication flows", authenticationFlowsImportService::doImport);
+            importStage(realmImport, "authenticator configs", authenticatorConfigImportService::doImport);
+            importStage(realmImport, "components", componentImportService::doImport);
+            importStage(realmImport, "scope mappings", scopeMappingImportService::doImport);
+            importStage(realmImport, "identity providers", identityProviderImportService::doImport);
+            importStage(realmImport, "custom import", customImportService::doImport);
+
+            importStage(realmImport, "save state", stateService::doImport);
+            importStage(realmImport, "save checksum", checksumService::doImport);
+        } finally {
+            realmSnapshotRepository.drop(realmImport.getRealm());
+            entityFingerprintService.drop(realmImport.getRealm());
+        }
+    }
+
+    /**
+     * Lists the sections present in the import once, so the lookups of the stages are answered without a request per
+     * entity.
+     */
+    private void loadSnapshot(RealmImport realmImport) {
+        Set<Section> sections = EnumSet.noneOf(Section.class);
+
+        if (realmImport.getClients() != null) sections.add(Section.CLIENTS);
+        if (realmImport.getAuthenticationFlows() != null) sections.add(Section.AUTHENTICATION_FLOWS);
+        if (realmImport.getIdentityProviders() != null) sections.add(Section.IDENTITY_PROVIDERS);
+        if (realmImport.getClientScopes() != null) sections.add(Section.CLIENT_SCOPES);
+
+        realmSnapshotRepository.load(realmImport.getRealm(), sections);
+    }
+
+    /**
+     * Each stage starts only if the import deadline is not exceeded yet
+     */
+    private void importStage(RealmImport realmImport, String stage, Consumer<RealmImport> importer) {
+        deadlineService.check(realmImport.getRealm(), stage);
+
+        importer.accept(realmImport);
     }
 }
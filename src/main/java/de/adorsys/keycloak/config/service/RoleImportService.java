@@ -23,6 +23,8 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.repository.RoleRepository;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
 import de.adorsys.keycloak.config.service.rolecomposites.client.ClientRoleCompositeImportService;
 import de.adorsys.keycloak.config.service.rolecomposites.realm.RealmRoleCompositeImportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
@@ -33,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -47,24 +50,28 @@ public class RoleImportService {
 
     private final RoleRepository roleRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final EntityFingerprintService entityFingerprintService;
 
     @Autowired
     public RoleImportService(
             RealmRoleCompositeImportService realmRoleCompositeImportService,
             ClientRoleCompositeImportService clientRoleCompositeImportService,
             RoleRepository roleRepository,
-            ImportConfigProperties importConfigProperties) {
+            ImportConfigProperties importConfigProperties,
+            EntityFingerprintService entityFingerprintService) {
         this.realmRoleCompositeImport = realmRoleCompositeImportService;
         this.clientRoleCompositeImport = clientRoleCompositeImportService;
         this.roleRepository = roleRepository;
         this.importConfigProperties = importConfigProperties;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     public void doImport(RealmImport realmImport) {
-        RolesRepresentation roles = realmImport.getRoles();
-        if (roles == null) return;
+        if (realmImport.getRoles() == null) return;
 
         String realm = realmImport.getRealm();
+        RolesRepresentation roles = getChangedRoles(realm, realmImport.getRoles());
+
         createOrUpdateRealmRoles(realm, roles);
         createOrUpdateClientRoles(realm, roles);
 
@@ -72,6 +79,30 @@ public class RoleImportService {
         clientRoleCompositeImport.update(realm, roles);
     }
 
+    private RolesRepresentation getChangedRoles(String realm, RolesRepresentation roles) {
+        RolesRepresentation changedRoles = new RolesRepresentation();
+
+        if (roles.getRealm() != null) {
+            changedRoles.setRealm(entityFingerprintService.filterChanged(realm, Entity.REALM_ROLES, roles.getRealm(), RoleRepresentation::getName));
+        }
+
+        if (roles.getClient() != null) {
+            Map<String, List<RoleRepresentation>> changedClientRoles = new HashMap<>();
+
+            for (Map.Entry<String, List<RoleRepresentation>> clientRoles : roles.getClient().entrySet()) {
+                String clientId = clientRoles.getKey();
+                List<RoleRepresentation> changedRolesOfClient = entityFingerprintService.filterChanged(realm, Entity.CLIENT_ROLES,
+                        clientRoles.getValue(), role -> EntityFingerprintService.clientRoleKey(clientId, role));
+
+                if (!changedRolesOfClient.isEmpty()) changedClientRoles.put(clientId, changedRolesOfClient);
+            }
+
+            changedRoles.setClient(changedClientRoles);
+        }
+
+        return changedRoles;
+    }
+
     private void createOrUpdateRealmRoles(String realm, RolesRepresentation roles) {
         List<RoleRepresentation> realmRoles = roles.getRealm();
 
@@ -21,10 +21,14 @@
 package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.model.UserIterator;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.repository.GroupRepository;
 import de.adorsys.keycloak.config.repository.RoleRepository;
 import de.adorsys.keycloak.config.repository.UserRepository;
+import de.adorsys.keycloak.config.repository.WriteBatch;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
@@ -34,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -47,45 +52,80 @@ public class UserImportService {
 
     private static final String[] IGNORED_PROPERTIES_FOR_UPDATE = {"realmRoles", "clientRoles"};
 
+    // users read from the import but not imported yet, bounds the memory used by streamed users
+    private static final int BATCH_SIZE = 500;
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final GroupRepository groupRepository;
 
     private final ImportConfigProperties importConfigProperties;
+    private final EntityFingerprintService entityFingerprintService;
 
     @Autowired
     public UserImportService(
             UserRepository userRepository,
             RoleRepository roleRepository,
-            GroupRepository groupRepository, ImportConfigProperties importConfigProperties) {
+            GroupRepository groupRepository, ImportConfigProperties importConfigProperties,
+            EntityFingerprintService entityFingerprintService) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.groupRepository = groupRepository;
         this.importConfigProperties = importConfigProperties;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     public void doImport(RealmImport realmImport) {
-        List<UserRepresentation> users = realmImport.getUsers();
-
-        if (users == null) {
+        if (!realmImport.hasUsers()) {
             return;
         }
 
-        if (users.isEmpty()) {
+        String realm = realmImport.getRealm();
+        int count = 0;
+
+        try (UserIterator users = realmImport.iterateUsers()) {
+            List<UserRepresentation> batch = new ArrayList<>(BATCH_SIZE);
+
+            while (users.hasNext()) {
+                batch.add(users.next());
+                count++;
+
+                if (batch.size() == BATCH_SIZE) {
+                    importBatch(realm, batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                importBatch(realm, batch);
+            }
+        }
+
+        if (count == 0) {
             logger.warn("Purging users isn't supported in keycloak-config-cli!");
-            return;
         }
+    }
 
-        Consumer<UserRepresentation> loop = user -> importUser(realmImport.getRealm(), user);
+    private void importBatch(String realm, List<UserRepresentation> users) {
+        List<UserRepresentation> changedUsers = entityFingerprintService
+                .filterChanged(realm, Entity.USERS, users, UserRepresentation::getUsername);
+
+        // updates, role mappings and group memberships are sent without waiting for them, they are awaited once all
+        // users of the batch are done
+        WriteBatch writes = new WriteBatch();
+
+        Consumer<UserRepresentation> loop = user -> importUser(realm, user, writes);
         if (importConfigProperties.isParallel()) {
-            users.parallelStream().forEach(loop);
+            changedUsers.parallelStream().forEach(loop);
         } else {
-            users.forEach(loop);
+            changedUsers.forEach(loop);
         }
+
+        writes.await("users of realm '" + realm + "'");
     }
 
-    private void importUser(String realm, UserRepresentation user) {
-        UserImport userImport = new UserImport(realm, user);
+    private void importUser(String realm, UserRepresentation user, WriteBatch writes) {
+        UserImport userImport = new UserImport(realm, user, writes);
         userImport.importUser();
     }
 
@@ -93,11 +133,13 @@ public class UserImportService {
         private final String realm;
         private final UserRepresentation userToImport;
         private final String username;
+        private final WriteBatch writes;
 
-        private UserImport(String realm, UserRepresentation userToImport) {
+        private UserImport(String realm, UserRepresentation userToImport, WriteBatch writes) {
             this.realm = realm;
             this.userToImport = userToImport;
             this.username = userToImport.getUsername();
+            this.writes = writes;
         }
 
         public void importUser() {
@@ -123,7 +165,7 @@ public class UserImportService {
 
             if (!CloneUtil.deepEquals(existingUser, patchedUser, "access")) {
                 logger.debug("Update user '{}' in realm '{}'", username, realm);
-                userRepository.updateUser(realm, patchedUser);
+                writes.add(userRepository.updateUserAsync(realm, patchedUser));
             } else {
                 logger.debug("No need to update user '{}' in realm '{}'", username, realm);
             }
@@ -150,7 +192,7 @@ public class UserImportService {
 
             logger.debug("Add groups {} to user '{}' in realm '{}'", groupsToAdd, username, realm);
 
-            groupRepository.addGroupsToUser(realm, username, groups);
+            writes.add(groupRepository.addGroupsToUserAsync(realm, username, groups));
         }
 
         private void handleGroupsToBeRemoved(List<String> userGroupsToUpdate, List<String> existingUserGroupsToUpdate) {
@@ -161,7 +203,7 @@ public class UserImportService {
 
             logger.debug("Remove groups {} from user '{}' in realm '{}'", groupsToDelete, username, realm);
 
-            groupRepository.removeGroupsFromUser(realm, username, groups);
+            writes.add(groupRepository.removeGroupsFromUserAsync(realm, username, groups));
         }
 
         private void handleRealmRoles() {
@@ -184,7 +226,7 @@ public class UserImportService {
 
             logger.debug("Add realm-level roles {} to user '{}' in realm '{}'", rolesToAdd, username, realm);
 
-            roleRepository.addRealmRolesToUser(realm, username, realmRoles);
+            writes.add(roleRepository.addRealmRolesToUserAsync(realm, username, realmRoles));
         }
 
         private void handleRolesToBeRemoved(List<String> usersRealmLevelRolesToUpdate, List<String> existingUsersRealmLevelRoles) {
@@ -195,7 +237,7 @@ public class UserImportService {
 
             logger.debug("Remove realm-level roles {} from user '{}' in realm '{}'", rolesToDelete, username, realm);
 
-            roleRepository.removeRealmRolesForUser(realm, username, realmRoles);
+            writes.add(roleRepository.removeRealmRolesForUserAsync(realm, username, realmRoles));
         }
 
         private void handleClientRoles() {
@@ -244,7 +286,7 @@ public class UserImportService {
 
                 logger.debug("Add client-level roles {} for client '{}' to user '{}' in realm '{}'", clientRolesToAdd, clientId, username, realm);
 
-                roleRepository.addClientRolesToUser(realm, username, clientId, foundClientRoles);
+                writes.add(roleRepository.addClientRolesToUserAsync(realm, username, clientId, foundClientRoles));
             }
 
             private void handleClientRolesToBeRemoved() {
@@ -255,7 +297,7 @@ public class UserImportService {
 
                 logger.debug("Remove client-level roles {} for client '{}' from user '{}' in realm '{}'", clientRolesToRemove, clientId, username, realm);
 
-                roleRepository.removeClientRolesForUser(realm, username, clientId, foundClientRoles);
+                writes.add(roleRepository.removeClientRolesForUserAsync(realm, username, clientId, foundClientRoles));
             }
         }
     }
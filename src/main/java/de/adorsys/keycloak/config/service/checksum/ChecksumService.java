@@ -38,11 +38,16 @@ public class ChecksumService {
 
     private final RealmRepository realmRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final EntityFingerprintService entityFingerprintService;
 
     @Autowired
-    public ChecksumService(RealmRepository realmRepository, ImportConfigProperties importConfigProperties) {
+    public ChecksumService(
+            RealmRepository realmRepository,
+            ImportConfigProperties importConfigProperties,
+            EntityFingerprintService entityFingerprintService) {
         this.realmRepository = realmRepository;
         this.importConfigProperties = importConfigProperties;
+        this.entityFingerprintService = entityFingerprintService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -51,18 +56,28 @@ public class ChecksumService {
 
         String importChecksum = realmImport.getChecksum();
         customAttributes.put(getCustomAttributeKey(), importChecksum);
+        customAttributes.putAll(entityFingerprintService.getAttributes(realmImport));
         realmRepository.update(existingRealm);
 
         logger.debug("Updated import checksum of realm '{}' to '{}'", realmImport.getRealm(), importChecksum);
     }
 
     public boolean hasToBeUpdated(RealmImport realmImport) {
-        RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
-        Map<String, String> customAttributes = existingRealm.getAttributes();
+        return !realmImport.getChecksum().equals(readChecksum(realmImport.getRealm()));
+    }
 
-        String readChecksum = customAttributes.get(getCustomAttributeKey());
+    /**
+     * Whether the realm exists and was imported with the given checksum, used to skip files before they are parsed
+     */
+    public boolean isImported(String realm, String checksum) {
+        return realmRepository.exists(realm) && checksum.equals(readChecksum(realm));
+    }
+
+    private String readChecksum(String realm) {
+        RealmRepresentation existingRealm = realmRepository.get(realm);
+        Map<String, String> customAttributes = existingRealm.getAttributes();
 
-        return !realmImport.getChecksum().equals(readChecksum);
+        return customAttributes.get(getCustomAttributeKey());
     }
 
     private String getCustomAttributeKey() {
@@ -0,0 +1,373 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.checksum;
+
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.model.UserIterator;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.util.ChecksumUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.keycloak.common.util.MultivaluedHashMap;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.ComponentExportRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Detects which entities of an import changed since the last successful import of the realm, so the import services
+ * only read, compare and write those.
+ * <p>
+ * Every client, role, group, user, top-level flow and component gets a fingerprint keyed by its natural key. The
+ * fingerprints of a type are spread over {@link #BUCKETS} buckets and the manifest of the type keeps one digest per
+ * bucket, which is small enough to be stored next to the import checksum in the realm attributes. An entity is
+ * skipped if the digest of its bucket and the digests of everything it refers to (e.g. the roles and groups of a
+ * user) are the same as in the stored manifest.
+ */
+@Service
+public class EntityFingerprintService {
+    private static final Logger logger = LoggerFactory.getLogger(EntityFingerprintService.class);
+
+    static final int BUCKETS = 128;
+    private static final int DIGEST_LENGTH = Long.BYTES;
+    private static final int MAX_ATTRIBUTE_LENGTH = 250;
+
+    // bump if the content of the fingerprints changes, this invalidates all stored manifests
+    private static final String VERSION = "3";
+
+    /**
+     * The entity types with fingerprints, each one listed after the types it depends on.
+     */
+    public enum Entity {
+        AUTHENTICATION_FLOWS,
+        COMPONENTS,
+        CLIENTS(AUTHENTICATION_FLOWS),
+        REALM_ROLES,
+        CLIENT_ROLES(CLIENTS),
+        GROUPS(REALM_ROLES, CLIENT_ROLES),
+        USERS(GROUPS, REALM_ROLES, CLIENT_ROLES);
+
+        private final List<Entity> dependencies;
+
+        Entity(Entity... dependencies) {
+            this.dependencies = Arrays.asList(dependencies);
+        }
+    }
+
+    private final RealmRepository realmRepository;
+    private final ImportConfigProperties importConfigProperties;
+
+    private final Map<String, Fingerprints> fingerprints = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EntityFingerprintService(RealmRepository realmRepository, ImportConfigProperties importConfigProperties) {
+        this.realmRepository = realmRepository;
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    public static String clientKey(ClientRepresentation client) {
+        return client.getClientId() != null ? client.getClientId() : "name:" + client.getName();
+    }
+
+    public static String clientRoleKey(String clientId, RoleRepresentation role) {
+        return clientId + "/" + role.getName();
+    }
+
+    public static String componentKey(String providerType, ComponentExportRepresentation component) {
+        return providerType + "/" + component.getSubType() + "/" + component.getName();
+    }
+
+    /**
+     * Computes the manifests of the import and compares them with the ones stored by the last import of the realm.
+     * With forced imports nothing is compared and every entity is imported.
+     */
+    public void load(RealmImport realmImport) {
+        String realm = realmImport.getRealm();
+        Map<Entity, byte[]> manifests = computeManifests(realmImport);
+
+        Map<Entity, BitSet> unchangedBuckets = new EnumMap<>(Entity.class);
+        if (!importConfigProperties.isForce()) {
+            Map<String, String> attributes = realmRepository.get(realm).getAttributes();
+
+            for (Map.Entry<Entity, byte[]> manifest : manifests.entrySet()) {
+                byte[] storedManifest = readManifest(attributes, manifest.getKey());
+                unchangedBuckets.put(manifest.getKey(), compare(storedManifest, manifest.getValue()));
+            }
+        }
+
+        fingerprints.put(realm, new Fingerprints(manifests, unchangedBuckets));
+    }
+
+    /**
+     * Returns the entities which have to be imported, i.e. all entities without a stored manifest to compare with and
+     * otherwise the new and changed ones. Entities missing in the import are not affected, they are still handled by
+     * the deletion of the import services.
+     */
+    public <T> List<T> filterChanged(String realm, Entity entity, List<T> entities, Function<T, String> key) {
+        Fingerprints realmFingerprints = fingerprints.get(realm);
+        if (realmFingerprints == null) return entities;
+
+        BitSet unchangedBuckets = realmFingerprints.unchangedBuckets.get(entity);
+        if (unchangedBuckets == null || unchangedBuckets.isEmpty()) return entities;
+
+        List<T> changedEntities = entities.stream()
+                .filter(e -> !unchangedBuckets.get(bucket(key.apply(e))))
+                .collect(Collectors.toList());
+
+        logger.debug("Skip {} of {} unchanged {} in realm '{}'",
+                entities.size() - changedEntities.size(), entities.size(), entity, realm);
+
+        return changedEntities;
+    }
+
+    /**
+     * The realm attributes holding the manifests of the import, stored together with the import checksum.
+     */
+    public Map<String, String> getAttributes(RealmImport realmImport) {
+        Fingerprints realmFingerprints = fingerprints.get(realmImport.getRealm());
+        Map<Entity, byte[]> manifests = realmFingerprints != null
+                ? realmFingerprints.manifests
+                : computeManifests(realmImport);
+
+        Map<String, String> attributes = new HashMap<>();
+        for (Map.Entry<Entity, byte[]> manifest : manifests.entrySet()) {
+            String encoded = Base64.getEncoder().encodeToString(manifest.getValue());
+            String attributeKey = getAttributeKey(manifest.getKey());
+
+            for (int index = 0; index * MAX_ATTRIBUTE_LENGTH < encoded.length(); index++) {
+                int start = index * MAX_ATTRIBUTE_LENGTH;
+                String chunk = encoded.substring(start, Math.min(encoded.length(), start + MAX_ATTRIBUTE_LENGTH));
+                attributes.put(attributeKey + "-" + index, chunk);
+            }
+        }
+
+        return attributes;
+    }
+
+    public void drop(String realm) {
+        fingerprints.remove(realm);
+    }
+
+    private Map<Entity, byte[]> computeManifests(RealmImport realmImport) {
+        Map<Entity, byte[]> manifests = new EnumMap<>(Entity.class);
+
+        for (Entity entity : Entity.values()) {
+            StringBuilder context = new StringBuilder(VERSION);
+            for (Entity dependency : entity.dependencies) {
+                context.append('\n').append(DigestUtils.sha256Hex(manifests.get(dependency)));
+            }
+            context.append('\n').append(fingerprint(getContext(realmImport, entity)));
+
+            ManifestBuilder manifest = new ManifestBuilder(context.toString());
+            forEachEntity(realmImport, entity, manifest::add);
+            manifests.put(entity, manifest.build());
+        }
+
+        return manifests;
+    }
+
+    private BitSet compare(byte[] storedManifest, byte[] manifest) {
+        BitSet unchangedBuckets = new BitSet(BUCKETS);
+        if (storedManifest == null || storedManifest.length != manifest.length) return unchangedBuckets;
+
+        if (!rangeEquals(storedManifest, manifest, 0)) return unchangedBuckets;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            if (rangeEquals(storedManifest, manifest, (i + 1) * DIGEST_LENGTH)) {
+                unchangedBuckets.set(i);
+            }
+        }
+
+        return unchangedBuckets;
+    }
+
+    private boolean rangeEquals(byte[] a, byte[] b, int from) {
+        for (int i = from; i < from + DIGEST_LENGTH; i++) {
+            if (a[i] != b[i]) return false;
+        }
+
+        return true;
+    }
+
+    private byte[] readManifest(Map<String, String> attributes, Entity entity) {
+        if (attributes == null) return null;
+
+        String attributeKey = getAttributeKey(entity);
+        StringBuilder encoded = new StringBuilder();
+        for (int index = 0; attributes.containsKey(attributeKey + "-" + index); index++) {
+            encoded.append(attributes.get(attributeKey + "-" + index));
+        }
+
+        if (encoded.length() == 0) return null;
+
+        try {
+            return Base64.getDecoder().decode(encoded.toString());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring unreadable fingerprints of {}", entity);
+            return null;
+        }
+    }
+
+    private void forEachEntity(RealmImport realmImport, Entity entity, BiConsumer<String, Object> consumer) {
+        switch (entity) {
+            case AUTHENTICATION_FLOWS:
+                forEach(realmImport.getAuthenticationFlows(), flow -> {
+                    if (flow.isTopLevel()) consumer.accept(flow.getAlias(), flow);
+                });
+                break;
+            case COMPONENTS:
+                MultivaluedHashMap<String, ComponentExportRepresentation> components = realmImport.getComponents();
+                if (components == null) break;
+
+                components.forEach((providerType, componentsOfType) -> componentsOfType
+                        .forEach(component -> consumer.accept(componentKey(providerType, component), component)));
+                break;
+            case CLIENTS:
+                forEach(realmImport.getClients(), client -> consumer.accept(clientKey(client), client));
+                break;
+            case REALM_ROLES:
+                RolesRepresentation realmRoles = realmImport.getRoles();
+                if (realmRoles == null) break;
+
+                forEach(realmRoles.getRealm(), role -> consumer.accept(role.getName(), role));
+                break;
+            case CLIENT_ROLES:
+                RolesRepresentation clientRoles = realmImport.getRoles();
+                if (clientRoles == null || clientRoles.getClient() == null) break;
+
+                clientRoles.getClient().forEach((clientId, rolesOfClient) -> rolesOfClient
+                        .forEach(role -> consumer.accept(clientRoleKey(clientId, role), role)));
+                break;
+            case GROUPS:
+                forEach(realmImport.getGroups(), group -> consumer.accept(group.getName(), group));
+                break;
+            case USERS:
+                // streamed users are read from the file once more
+                try (UserIterator users = realmImport.iterateUsers()) {
+                    users.forEachRemaining(user -> consumer.accept(user.getUsername(), user));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown entity " + entity);
+        }
+    }
+
+    /**
+     * Parts of the import which are no entities on their own but change how the entities of a type are imported.
+     */
+    private Object getContext(RealmImport realmImport, Entity entity) {
+        switch (entity) {
+            case AUTHENTICATION_FLOWS:
+                List<AuthenticationFlowRepresentation> nonTopLevelFlows = realmImport.getAuthenticationFlows() == null
+                        ? null
+                        : realmImport.getAuthenticationFlows().stream()
+                        .filter(flow -> !flow.isTopLevel())
+                        .collect(Collectors.toList());
+
+                return Arrays.asList(nonTopLevelFlows, realmImport.getAuthenticatorConfig());
+            case CLIENTS:
+                return realmImport.getClientScopes();
+            default:
+                return null;
+        }
+    }
+
+    private String fingerprint(Object value) {
+        return value == null ? "" : ChecksumUtil.canonicalChecksum(value);
+    }
+
+    private <T> void forEach(List<T> entities, Consumer<T> consumer) {
+        if (entities != null) entities.forEach(consumer);
+    }
+
+    private String getAttributeKey(Entity entity) {
+        return MessageFormat.format(
+                ImportConfigProperties.REALM_FINGERPRINTS_ATTRIBUTE_PREFIX_KEY,
+                importConfigProperties.getCacheKey(),
+                entity.name().toLowerCase(Locale.ROOT)
+        );
+    }
+
+    /**
+     * Layout: the digest of the context followed by the digests of all buckets. The digest of a bucket is the sum of
+     * the digests of its entities, so it doesn't depend on their order and the entities are added one at a time
+     * without holding them.
+     */
+    private class ManifestBuilder {
+        private final String context;
+        private final long[] buckets = new long[BUCKETS];
+
+        ManifestBuilder(String context) {
+            this.context = context;
+        }
+
+        void add(String key, Object entity) {
+            byte[] digest = DigestUtils.sha256(key + '\n' + fingerprint(entity));
+            buckets[bucket(key)] += ByteBuffer.wrap(digest).getLong();
+        }
+
+        byte[] build() {
+            ByteBuffer manifest = ByteBuffer.allocate((BUCKETS + 1) * DIGEST_LENGTH);
+            manifest.put(DigestUtils.sha256(context), 0, DIGEST_LENGTH);
+
+            for (long bucket : buckets) {
+                manifest.putLong(bucket);
+            }
+
+            return manifest.array();
+        }
+    }
+
+    static int bucket(String key) {
+        return Math.floorMod(String.valueOf(key).hashCode(), BUCKETS);
+    }
+
+    private static class Fingerprints {
+        private final Map<Entity, byte[]> manifests;
+        private final Map<Entity, BitSet> unchangedBuckets;
+
+        Fingerprints(Map<Entity, byte[]> manifests, Map<Entity, BitSet> unchangedBuckets) {
+            this.manifests = manifests;
+            this.unchangedBuckets = unchangedBuckets;
+        }
+    }
+}
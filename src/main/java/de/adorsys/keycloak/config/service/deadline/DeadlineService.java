@@ -0,0 +1,81 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.deadline;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Enforces import.deadline for the whole run. The realm import checks it between its stages, the admin client before
+ * each request, which also cancels the remaining work of parallel imports.
+ */
+@Service
+public class DeadlineService {
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineService.class);
+
+    private final ImportConfigProperties importConfigProperties;
+
+    private volatile Instant deadline;
+
+    @Autowired
+    public DeadlineService(ImportConfigProperties importConfigProperties) {
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    public void start() {
+        Duration timeout = importConfigProperties.getDeadline();
+        if (timeout == null) return;
+
+        deadline = Instant.now().plus(timeout);
+        logger.debug("Import has to be finished until {}", deadline);
+    }
+
+    public boolean isExceeded() {
+        Instant currentDeadline = deadline;
+        return currentDeadline != null && Instant.now().isAfter(currentDeadline);
+    }
+
+    public void check(String realm, String stage) {
+        if (isExceeded()) {
+            throw new ImportProcessingException(MessageFormat.format(
+                    "Import deadline of {0} exceeded before stage ''{1}'' of realm ''{2}''",
+                    importConfigProperties.getDeadline(), stage, realm
+            ));
+        }
+    }
+
+    public void check() {
+        if (isExceeded()) {
+            throw new ImportProcessingException(MessageFormat.format(
+                    "Import deadline of {0} exceeded, cancel request to keycloak",
+                    importConfigProperties.getDeadline()
+            ));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.AdaptiveConcurrencyLimiter;
+import de.adorsys.keycloak.config.provider.AdminApiEndpoint;
+import de.adorsys.keycloak.config.provider.AdminApiMetrics;
+import de.adorsys.keycloak.config.provider.EndpointMetrics;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.provider.RetryBudget;
+import net.jodah.failsafe.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the metrics of the admin api calls at the end of a run: a summary table in the log, the slowest endpoints
+ * first, and an OpenMetrics text file at import.metrics-file, so runs can be archived and compared.
+ */
+@Service
+public class MetricsService {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsService.class);
+
+    private static final String ROW_FORMAT = "%-22s %-60s %7s %6s %6s %10s %9s %9s %11s %11s";
+
+    private final AdminApiMetrics metrics;
+    private final KeycloakProvider keycloakProvider;
+    private final ImportConfigProperties importConfigProperties;
+
+    @Autowired
+    public MetricsService(AdminApiMetrics metrics, KeycloakProvider keycloakProvider, ImportConfigProperties importConfigProperties) {
+        this.metrics = metrics;
+        this.keycloakProvider = keycloakProvider;
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    public void report() {
+        List<EndpointMetrics> endpoints = metrics.getEndpoints();
+
+        if (!endpoints.isEmpty()) {
+            logSummary(endpoints);
+        }
+
+        String metricsFile = importConfigProperties.getMetricsFile();
+        if (metricsFile != null) {
+            writeOpenMetrics(Paths.get(metricsFile), endpoints);
+        }
+    }
+
+    private void logSummary(List<EndpointMetrics> endpoints) {
+        logger.info("Calls of the keycloak admin api:");
+        logger.info("{}", String.format(ROW_FORMAT, "entity", "operation", "calls", "errors", "4xx", "total ms", "avg ms", "p95 ms", "sent", "received"));
+
+        for (EndpointMetrics endpoint : endpoints) {
+            long calls = endpoint.getCalls();
+            long totalMillis = TimeUnit.NANOSECONDS.toMillis(endpoint.getLatencyNanos());
+
+            logger.info("{}", String.format(ROW_FORMAT,
+                    endpoint.getEndpoint().getEntityType(),
+                    endpoint.getEndpoint().getOperation(),
+                    calls,
+                    endpoint.getErrors(),
+                    endpoint.getClientErrors(),
+                    totalMillis,
+                    calls > 0 ? totalMillis / calls : 0,
+                    formatPercentile(endpoint.getLatencyBuckets(), 0.95),
+                    formatBytes(endpoint.getRequestBytes()),
+                    formatBytes(endpoint.getResponseBytes())
+            ));
+        }
+    }
+
+    private void writeOpenMetrics(Path file, List<EndpointMetrics> endpoints) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            Files.write(file, toOpenMetrics(endpoints).getBytes(StandardCharsets.UTF_8));
+            logger.info("Wrote metrics of the keycloak admin api to {}", file);
+        } catch (IOException e) {
+            // the metrics must not fail an otherwise successful import
+            logger.error("Could not write metrics to {}: {}", file, e.getMessage());
+        }
+    }
+
+    String toOpenMetrics(List<EndpointMetrics> endpoints) {
+        StringBuilder out = new StringBuilder();
+
+        family(out, "keycloak_admin_calls", "counter", null, "Calls of the keycloak admin api, including retries");
+        for (EndpointMetrics endpoint : endpoints) {
+            sample(out, "keycloak_admin_calls_total", labels(endpoint.getEndpoint()), endpoint.getCalls());
+        }
+
+        family(out, "keycloak_admin_errors", "counter", null, "Calls which failed with an IO error or a 5xx response");
+        for (EndpointMetrics endpoint : endpoints) {
+            sample(out, "keycloak_admin_errors_total", labels(endpoint.getEndpoint()), endpoint.getErrors());
+        }
+
+        family(out, "keycloak_admin_client_errors", "counter", null, "Calls with a 4xx response");
+        for (EndpointMetrics endpoint : endpoints) {
+            sample(out, "keycloak_admin_client_errors_total", labels(endpoint.getEndpoint()), endpoint.getClientErrors());
+        }
+
+        family(out, "keycloak_admin_call_duration_seconds", "histogram", "seconds", "Latency of the calls until the response headers are read");
+        for (EndpointMetrics endpoint : endpoints) {
+            String labels = labels(endpoint.getEndpoint());
+            long[] buckets = endpoint.getLatencyBuckets();
+            long cumulative = 0;
+
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i];
+                String le = i < EndpointMetrics.LATENCY_BUCKETS.length ? Double.toString(EndpointMetrics.LATENCY_BUCKETS[i]) : "+Inf";
+                sample(out, "keycloak_admin_call_duration_seconds_bucket", labels + ",le=\"" + le + "\"", cumulative);
+            }
+
+            sample(out, "keycloak_admin_call_duration_seconds_count", labels, cumulative);
+            sample(out, "keycloak_admin_call_duration_seconds_sum", labels, endpoint.getLatencyNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        family(out, "keycloak_admin_request_bytes", "counter", "bytes", "Bytes of the request bodies as sent");
+        for (EndpointMetrics endpoint : endpoints) {
+            sample(out, "keycloak_admin_request_bytes_total", labels(endpoint.getEndpoint()), endpoint.getRequestBytes());
+        }
+
+        family(out, "keycloak_admin_response_bytes", "counter", "bytes", "Bytes of the response bodies as received");
+        for (EndpointMetrics endpoint : endpoints) {
+            sample(out, "keycloak_admin_response_bytes_total", labels(endpoint.getEndpoint()), endpoint.getResponseBytes());
+        }
+
+        Optional<AdaptiveConcurrencyLimiter> concurrencyLimiter = keycloakProvider.getConcurrencyLimiter();
+        if (concurrencyLimiter.isPresent()) {
+            family(out, "keycloak_admin_concurrency_limit", "gauge", null, "Adaptive concurrency limit at the end of the run");
+            sample(out, "keycloak_admin_concurrency_limit", null, concurrencyLimiter.get().getLimit());
+        }
+
+        Optional<RetryBudget> retryBudget = keycloakProvider.getRetryBudget();
+        if (retryBudget.isPresent()) {
+            family(out, "keycloak_admin_retries", "counter", null, "Retries of reads");
+            sample(out, "keycloak_admin_retries_total", null, retryBudget.get().getRetries());
+            family(out, "keycloak_admin_rejected_retries", "counter", null, "Retries not done, because the retry budget was drained");
+            sample(out, "keycloak_admin_rejected_retries_total", null, retryBudget.get().getRejectedRetries());
+            family(out, "keycloak_admin_exhausted_retries", "counter", null, "Reads which failed even after all retries");
+            sample(out, "keycloak_admin_exhausted_retries_total", null, retryBudget.get().getExhaustedRequests());
+        }
+
+        Optional<CircuitBreaker.State> circuitBreakerState = keycloakProvider.getCircuitBreakerState();
+        if (circuitBreakerState.isPresent()) {
+            family(out, "keycloak_admin_circuit_breaker_state", "stateset", null, "State of the circuit breaker at the end of the run");
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                String stateName = state.name().toLowerCase(Locale.ROOT);
+                sample(out, "keycloak_admin_circuit_breaker_state", "keycloak_admin_circuit_breaker_state=\"" + stateName + "\"",
+                        state == circuitBreakerState.get() ? 1 : 0);
+            }
+        }
+
+        out.append("# EOF\n");
+
+        return out.toString();
+    }
+
+    private static void family(StringBuilder out, String name, String type, String unit, String help) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (unit != null) {
+            out.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+        }
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Number value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String labels(AdminApiEndpoint endpoint) {
+        return "entity=\"" + escape(endpoint.getEntityType())
+                + "\",method=\"" + escape(endpoint.getMethod())
+                + "\",path=\"" + escape(endpoint.getPath()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * The upper bound of the bucket which contains the percentile
+     */
+    private static String formatPercentile(long[] buckets, double percentile) {
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+
+        long rank = (long) Math.ceil(total * percentile);
+        long cumulative = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i];
+
+            if (cumulative >= rank) {
+                return i < EndpointMetrics.LATENCY_BUCKETS.length
+                        ? "<=" + Math.round(EndpointMetrics.LATENCY_BUCKETS[i] * 1000)
+                        : ">" + Math.round(EndpointMetrics.LATENCY_BUCKETS[i - 1] * 1000);
+            }
+        }
+
+        return "-";
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+}
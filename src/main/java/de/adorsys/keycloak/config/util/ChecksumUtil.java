@@ -20,9 +20,76 @@
 
 package de.adorsys.keycloak.config.util;
 
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.model.RealmImport;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
 public class ChecksumUtil {
+    /**
+     * Collections of a realm import in which the order of the elements has no meaning for the import. A "*" stands for
+     * every value of a map.
+     */
+    private static final List<String[]> UNORDERED_REALM_COLLECTIONS = Arrays.asList(
+            new String[]{"users"},
+            new String[]{"clients"},
+            new String[]{"groups"},
+            new String[]{"clientScopes"},
+            new String[]{"identityProviders"},
+            new String[]{"identityProviderMappers"},
+            new String[]{"authenticatorConfig"},
+            new String[]{"authenticationFlows"},
+            new String[]{"scopeMappings"},
+            new String[]{"defaultRoles"},
+            new String[]{"defaultDefaultClientScopes"},
+            new String[]{"defaultOptionalClientScopes"},
+            new String[]{"eventsListeners"},
+            new String[]{"enabledEventTypes"},
+            new String[]{"roles", "realm"},
+            new String[]{"roles", "client", "*"},
+            new String[]{"components", "*"},
+            new String[]{"clientScopeMappings", "*"}
+    );
+
+    private static final ObjectMapper canonicalMapper;
+
+    static {
+        SimpleModule sortedSets = new SimpleModule();
+        sortedSets.addSerializer(new SortedSetSerializer());
+
+        canonicalMapper = new ObjectMapper();
+        canonicalMapper.setSerializationInclusion(Include.NON_NULL);
+        canonicalMapper.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        canonicalMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        canonicalMapper.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+        canonicalMapper.registerModule(sortedSets);
+    }
+
     ChecksumUtil() {
         throw new IllegalStateException("Utility class");
     }
@@ -42,4 +109,129 @@ public class ChecksumUtil {
 
         return DigestUtils.sha256Hex(textInBytes);
     }
+
+    /**
+     * Checksum of the canonical JSON of an object: sorted keys, sorted sets, normalized numbers and no null values, so
+     * equal objects have equal checksums regardless of how they were written.
+     */
+    public static String canonicalChecksum(Object object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Cannot calculate checksum of null");
+        }
+
+        return checksum(toBytes(toCanonicalTree(object)));
+    }
+
+    /**
+     * Like {@link #canonicalChecksum(Object)}, the order of the users, clients, roles and the other collections of
+     * entities does not matter, too.
+     */
+    public static String canonicalChecksum(RealmImport realmImport) {
+        if (realmImport == null) {
+            throw new IllegalArgumentException("Cannot calculate checksum of null");
+        }
+
+        JsonNode tree = toCanonicalTree(realmImport);
+        for (String[] path : UNORDERED_REALM_COLLECTIONS) {
+            sortArrays(tree, path, 0);
+        }
+
+        return checksum(toBytes(tree));
+    }
+
+    private static JsonNode toCanonicalTree(Object object) {
+        return canonicalize(canonicalMapper.valueToTree(object));
+    }
+
+    private static JsonNode canonicalize(JsonNode node) {
+        if (node.isObject()) {
+            Map<String, JsonNode> fields = new TreeMap<>();
+            node.fields().forEachRemaining(field -> fields.put(field.getKey(), canonicalize(field.getValue())));
+
+            ObjectNode sortedNode = JsonNodeFactory.instance.objectNode();
+            sortedNode.setAll(fields);
+            return sortedNode;
+        }
+
+        if (node.isArray()) {
+            ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode();
+            node.forEach(element -> arrayNode.add(canonicalize(element)));
+            return arrayNode;
+        }
+
+        if (node.isNumber()) {
+            // 1, 1.0 and 1e0 are the same number
+            BigDecimal number = node.decimalValue().stripTrailingZeros();
+            return number.scale() <= 0
+                    ? BigIntegerNode.valueOf(number.toBigIntegerExact())
+                    : DecimalNode.valueOf(number);
+        }
+
+        return node;
+    }
+
+    private static void sortArrays(JsonNode node, String[] path, int index) {
+        if (node == null) return;
+
+        if (index == path.length) {
+            if (node.isArray()) sortArray((ArrayNode) node);
+            return;
+        }
+
+        if ("*".equals(path[index])) {
+            node.forEach(value -> sortArrays(value, path, index + 1));
+        } else {
+            sortArrays(node.get(path[index]), path, index + 1);
+        }
+    }
+
+    private static void sortArray(ArrayNode arrayNode) {
+        List<JsonNode> elements = new ArrayList<>(arrayNode.size());
+        arrayNode.forEach(elements::add);
+
+        elements.sort(Comparator.comparing(element -> new String(toBytes(element), StandardCharsets.UTF_8)));
+
+        arrayNode.removeAll();
+        arrayNode.addAll(elements);
+    }
+
+    private static byte[] toBytes(JsonNode node) {
+        try {
+            return canonicalMapper.writeValueAsBytes(node);
+        } catch (JsonProcessingException e) {
+            throw new ImportProcessingException(e);
+        }
+    }
+
+    /**
+     * Sets have no order, sets of strings, numbers and other simple values are written sorted.
+     */
+    private static class SortedSetSerializer extends StdSerializer<Set<?>> {
+        private static final long serialVersionUID = 1L;
+
+        SortedSetSerializer() {
+            super(Set.class, false);
+        }
+
+        @Override
+        public void serialize(Set<?> value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            List<Object> elements = new ArrayList<>(value);
+
+            if (isSortable(elements)) {
+                elements.sort(Comparator.comparing(String::valueOf));
+            }
+
+            provider.defaultSerializeValue(elements, generator);
+        }
+
+        private boolean isSortable(List<Object> elements) {
+            for (Object element : elements) {
+                if (!(element instanceof CharSequence || element instanceof Number || element instanceof Boolean || element instanceof Enum)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
 }
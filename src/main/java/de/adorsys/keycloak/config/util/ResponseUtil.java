@@ -20,6 +20,7 @@
 
 package de.adorsys.keycloak.config.util;
 
+import java.net.URI;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
@@ -36,6 +37,22 @@ public class ResponseUtil {
         response.close();
     }
 
+    /**
+     * Validates the response of a create and returns the id of the created entity, which is the last segment of its
+     * location, or null without location
+     */
+    public static String getCreatedId(Response response) {
+        URI location = response.getLocation();
+        validate(response);
+
+        if (location == null) {
+            return null;
+        }
+
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
     public static String getErrorMessage(WebApplicationException error) {
         return error.getResponse().readEntity(String.class).trim();
     }
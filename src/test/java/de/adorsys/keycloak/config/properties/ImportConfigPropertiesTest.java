@@ -29,6 +29,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
@@ -43,6 +45,11 @@ import static org.hamcrest.core.Is.is;
         "import.state=false",
         "import.file-type=yaml",
         "import.parallel=true",
+        "import.deadline=15m",
+        "import.metrics-file=target/metrics.txt",
+        "import.checksum-mode=canonical",
+        "import.stream-users=true",
+        "import.defer-sections=true",
         "import.managed.authentication-flow=no-delete",
         "import.managed.group=no-delete",
         "import.managed.required-action=no-delete",
@@ -66,6 +73,11 @@ class ImportConfigPropertiesTest {
         assertThat(properties.isState(), is(false));
         assertThat(properties.getFileType(), is(ImportConfigProperties.ImportFileType.YAML));
         assertThat(properties.isParallel(), is(true));
+        assertThat(properties.getDeadline(), is(Duration.ofMinutes(15L)));
+        assertThat(properties.getMetricsFile(), is("target/metrics.txt"));
+        assertThat(properties.getChecksumMode(), is(ImportConfigProperties.ImportChecksumMode.CANONICAL));
+        assertThat(properties.isStreamUsers(), is(true));
+        assertThat(properties.isDeferSections(), is(true));
         assertThat(properties.getManaged().getAuthenticationFlow(), is(ImportManagedPropertiesValues.NO_DELETE));
         assertThat(properties.getManaged().getGroup(), is(ImportManagedPropertiesValues.NO_DELETE));
         assertThat(properties.getManaged().getRequiredAction(), is(ImportManagedPropertiesValues.NO_DELETE));
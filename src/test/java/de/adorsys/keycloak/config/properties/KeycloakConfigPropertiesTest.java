@@ -27,6 +27,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 
@@ -47,7 +48,29 @@ import static org.hamcrest.core.Is.is;
         "keycloak.password=otherPassword",
         "keycloak.availability-check.enabled=true",
         "keycloak.availability-check.timeout=60s",
-        "keycloak.availability-check.retry-delay=10s"
+        "keycloak.availability-check.retry-delay=10s",
+        "keycloak.connection-pool.max-per-route=20",
+        "keycloak.connection-pool.max-total=40",
+        "keycloak.connection-pool.keep-alive=90s",
+        "keycloak.connection-pool.idle-timeout=15s",
+        "keycloak.compression.enabled=true",
+        "keycloak.compression.compress-requests=true",
+        "keycloak.compression.request-min-size=1KB",
+        "keycloak.concurrency-limit.enabled=false",
+        "keycloak.concurrency-limit.min-limit=2",
+        "keycloak.concurrency-limit.max-limit=32",
+        "keycloak.concurrency-limit.backoff-ratio=0.75",
+        "keycloak.concurrency-limit.latency-threshold=3s",
+        "keycloak.retry.enabled=false",
+        "keycloak.retry.max-retries=5",
+        "keycloak.retry.delay=1s",
+        "keycloak.retry.max-delay=30s",
+        "keycloak.retry.jitter=0.25",
+        "keycloak.retry.budget-ratio=0.2",
+        "keycloak.retry.budget-reserve=20",
+        "keycloak.circuit-breaker.enabled=false",
+        "keycloak.circuit-breaker.failure-threshold=5",
+        "keycloak.circuit-breaker.delay=1m"
 })
 class KeycloakConfigPropertiesTest {
 
@@ -65,6 +88,28 @@ class KeycloakConfigPropertiesTest {
         assertThat(properties.getAvailabilityCheck().isEnabled(), is(true));
         assertThat(properties.getAvailabilityCheck().getTimeout(), is(Duration.ofSeconds(60L)));
         assertThat(properties.getAvailabilityCheck().getRetryDelay(), is(Duration.ofSeconds(10L)));
+        assertThat(properties.getConnectionPool().getMaxPerRoute(), is(20));
+        assertThat(properties.getConnectionPool().getMaxTotal(), is(40));
+        assertThat(properties.getConnectionPool().getKeepAlive(), is(Duration.ofSeconds(90L)));
+        assertThat(properties.getConnectionPool().getIdleTimeout(), is(Duration.ofSeconds(15L)));
+        assertThat(properties.getCompression().isEnabled(), is(true));
+        assertThat(properties.getCompression().isCompressRequests(), is(true));
+        assertThat(properties.getCompression().getRequestMinSize(), is(DataSize.ofKilobytes(1L)));
+        assertThat(properties.getConcurrencyLimit().isEnabled(), is(false));
+        assertThat(properties.getConcurrencyLimit().getMinLimit(), is(2));
+        assertThat(properties.getConcurrencyLimit().getMaxLimit(), is(32));
+        assertThat(properties.getConcurrencyLimit().getBackoffRatio(), is(0.75));
+        assertThat(properties.getConcurrencyLimit().getLatencyThreshold(), is(Duration.ofSeconds(3L)));
+        assertThat(properties.getRetry().isEnabled(), is(false));
+        assertThat(properties.getRetry().getMaxRetries(), is(5));
+        assertThat(properties.getRetry().getDelay(), is(Duration.ofSeconds(1L)));
+        assertThat(properties.getRetry().getMaxDelay(), is(Duration.ofSeconds(30L)));
+        assertThat(properties.getRetry().getJitter(), is(0.25));
+        assertThat(properties.getRetry().getBudgetRatio(), is(0.2));
+        assertThat(properties.getRetry().getBudgetReserve(), is(20));
+        assertThat(properties.getCircuitBreaker().isEnabled(), is(false));
+        assertThat(properties.getCircuitBreaker().getFailureThreshold(), is(5));
+        assertThat(properties.getCircuitBreaker().getDelay(), is(Duration.ofMinutes(1L)));
     }
 
     @EnableConfigurationProperties(KeycloakConfigProperties.class)
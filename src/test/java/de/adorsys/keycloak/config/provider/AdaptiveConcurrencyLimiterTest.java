@@ -0,0 +1,126 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void shouldThrowOnInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(1, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> limiter(1, 5, 4));
+    }
+
+    @Test
+    void shouldClampInitialLimit() {
+        assertThat(limiter(100, 1, 10).getLimit(), is(10));
+        assertThat(limiter(0, 2, 10).getLimit(), is(2));
+    }
+
+    @Test
+    void shouldIncreaseLimitAdditivelyWhenUsed() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10);
+
+        // one full window of fast requests raises the limit by one
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(FAST, false);
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit(), is(2));
+
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(FAST, false);
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit(), is(3));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    void shouldNotIncreaseLimitWhenIdle() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 10);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release(FAST, false);
+        }
+
+        assertThat(limiter.getLimit(), is(8));
+    }
+
+    @Test
+    void shouldDecreaseLimitMultiplicativelyOnDropAndSlowResponse() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 10);
+
+        limiter.acquire();
+        limiter.release(FAST, true);
+        assertThat(limiter.getLimit(), is(5));
+
+        limiter.acquire();
+        limiter.release(SLOW, false);
+        assertThat(limiter.getLimit(), is(2));
+
+        limiter.acquire();
+        limiter.release(FAST, true);
+        assertThat(limiter.getLimit(), is(2));
+    }
+
+    @Test
+    void shouldBlockWhenLimitIsReached() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1);
+        limiter.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), is(false));
+
+        limiter.release(FAST, false);
+
+        assertThat(acquired.await(5, TimeUnit.SECONDS), is(true));
+        thread.join();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, 0.5, Duration.ofSeconds(1));
+    }
+}
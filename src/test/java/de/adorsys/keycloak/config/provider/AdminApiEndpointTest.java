@@ -0,0 +1,83 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class AdminApiEndpointTest {
+    @Test
+    void shouldReplaceIdsAndNames() {
+        AdminApiEndpoint endpoint = endpoint("GET", "/auth/admin/realms/master/clients/0b5b0b6e-2ed4-4b77-8c6c-2d2f4f1b9e3d/roles/my-role");
+
+        assertThat(endpoint.getEntityType(), is("clients"));
+        assertThat(endpoint.getPath(), is("/clients/{id}/roles/{id}"));
+        assertThat(endpoint.getOperation(), is("GET /clients/{id}/roles/{id}"));
+    }
+
+    @Test
+    void shouldKeepNestedResources() {
+        assertThat(endpoint("POST", "/auth/admin/realms/test/authentication/flows/my%20flow/executions/execution").getPath(),
+                is("/authentication/flows/{id}/executions/{id}"));
+        assertThat(endpoint("GET", "/auth/admin/realms/test/users/1234/role-mappings/realm/composite").getPath(),
+                is("/users/{id}/role-mappings/realm/composite"));
+        assertThat(endpoint("GET", "/auth/admin/realms/test/clients/1234/protocol-mappers/models").getPath(),
+                is("/clients/{id}/protocol-mappers/models"));
+    }
+
+    @Test
+    void shouldIgnoreQuery() {
+        AdminApiEndpoint endpoint = endpoint("GET", "/auth/admin/realms/test/users?username=john&first=0&max=100");
+
+        assertThat(endpoint.getEntityType(), is("users"));
+        assertThat(endpoint.getPath(), is("/users"));
+    }
+
+    @Test
+    void shouldMapRealm() {
+        AdminApiEndpoint endpoint = endpoint("PUT", "/auth/admin/realms/test");
+
+        assertThat(endpoint.getEntityType(), is("realm"));
+        assertThat(endpoint.getPath(), is("/"));
+        assertThat(endpoint("POST", "/auth/admin/realms/test/partial-export").getEntityType(), is("partial-export"));
+    }
+
+    @Test
+    void shouldMapTokenRequests() {
+        AdminApiEndpoint endpoint = endpoint("POST", "/auth/realms/master/protocol/openid-connect/token");
+
+        assertThat(endpoint.getEntityType(), is("auth"));
+        assertThat(endpoint.getPath(), is("/realms/{realm}/protocol/openid-connect/token"));
+    }
+
+    @Test
+    void shouldBeEqualForSameTemplate() {
+        assertThat(endpoint("GET", "/auth/admin/realms/a/groups/1"), is(endpoint("GET", "/auth/admin/realms/b/groups/2")));
+    }
+
+    private static AdminApiEndpoint endpoint(String method, String path) {
+        return AdminApiEndpoint.of(method, URI.create("http://localhost:8080" + path));
+    }
+}
@@ -0,0 +1,250 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.util.ChecksumUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares reading a large generated import file twice (parse, then checksum) with the single pass of
+ * {@link KeycloakImportProvider}, the heap held by the parsed import with and without streamed users, and parsing
+ * with and without deferred sections.
+ */
+class KeycloakImportProviderBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakImportProviderBenchmarkTest.class);
+
+    private static final String REALM = "benchmark";
+    private static final int USERS = 40_000;
+    private static final int WARMUP = 2;
+    private static final int ITERATIONS = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private File importFile;
+
+    @BeforeEach
+    void createImportFile() throws IOException {
+        importFile = File.createTempFile("realm-", ".json");
+
+        Files.write(importFile.toPath(), objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(createLargeRealm()));
+        // trailing bytes after the document are part of the checksum, too
+        Files.write(importFile.toPath(), "\n\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    @AfterEach
+    void deleteImportFile() throws IOException {
+        Files.deleteIfExists(importFile.toPath());
+    }
+
+    @Test
+    void shouldReadFileOnlyOnce() throws IOException {
+        // forced, the file is always parsed and no keycloak is asked for the stored checksum
+        KeycloakImportProvider keycloakImportProvider = importProvider(false, false);
+
+        Result twoPass = run("two-pass", this::readTwice);
+        Result singlePass = run("single-pass", () -> readOnce(keycloakImportProvider));
+
+        logger.info("Reading a {} MiB import with {} users, best of {} runs", importFile.length() / 1024 / 1024, USERS, ITERATIONS);
+        logger.info("{}", String.format("%-12s %16s %12s", "mode", "allocated bytes", "duration"));
+        logger.info("{}", twoPass);
+        logger.info("{}", singlePass);
+
+        assertThat(singlePass.checksum, is(twoPass.checksum));
+        assertThat(singlePass.users, is(USERS));
+        assertThat(singlePass.allocatedBytes, lessThan(twoPass.allocatedBytes - importFile.length() / 2));
+    }
+
+    @Test
+    void shouldNotHoldStreamedUsers() {
+        long listed = retainedBytes(importProvider(false, false));
+        long streamed = retainedBytes(importProvider(true, false));
+
+        logger.info("Heap held by a parsed import with {} users: {} bytes listed, {} bytes streamed", USERS, listed, streamed);
+
+        assertThat(streamed, lessThan(listed / 10));
+    }
+
+    @Test
+    void shouldParseLessWithDeferredSections() {
+        Result eager = run("eager", () -> readOnce(importProvider(false, false)));
+        // the users are bound after the measurement, when the result counts them
+        Result deferred = run("deferred", () -> readOnce(importProvider(false, true)));
+
+        logger.info("Parsing a {} MiB import with {} users, best of {} runs", importFile.length() / 1024 / 1024, USERS, ITERATIONS);
+        logger.info("{}", String.format("%-12s %16s %12s", "mode", "allocated bytes", "duration"));
+        logger.info("{}", eager);
+        logger.info("{}", deferred);
+
+        assertThat(deferred.checksum, is(eager.checksum));
+        assertThat(deferred.users, is(USERS));
+        assertThat(deferred.allocatedBytes, lessThan(eager.allocatedBytes));
+    }
+
+    private KeycloakImportProvider importProvider(boolean streamUsers, boolean deferSections) {
+        return new KeycloakImportProvider(new ImportConfigProperties(
+                importFile.getAbsolutePath(), true, "default", true, ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, streamUsers, deferSections, null), null);
+    }
+
+    private long retainedBytes(KeycloakImportProvider keycloakImportProvider) {
+        long before = usedHeap();
+        RealmImport realmImport = readOnce(keycloakImportProvider);
+        long after = usedHeap();
+
+        // keeps the import reachable until the heap is measured
+        assertThat(realmImport.hasUsers(), is(true));
+
+        return after - before;
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private RealmImport readTwice() {
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+            RealmImport realmImport = mapper.readValue(importFile, RealmImport.class);
+            realmImport.setChecksum(ChecksumUtil.checksum(Files.readAllBytes(importFile.toPath())));
+
+            return realmImport;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RealmImport readOnce(KeycloakImportProvider keycloakImportProvider) {
+        return keycloakImportProvider.get()
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private Result run(String mode, Supplier<RealmImport> reader) {
+        for (int i = 0; i < WARMUP; i++) {
+            reader.get();
+        }
+
+        Result best = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+
+            RealmImport realmImport = reader.get();
+
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            Result result = new Result(mode, realmImport.getChecksum(), realmImport.getUsers().size(), allocated, duration);
+            if (best == null || result.allocatedBytes < best.allocatedBytes) {
+                best = result;
+            }
+        }
+
+        return best;
+    }
+
+    private long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Generated user files are the largest imports, with one credential per user
+     */
+    private RealmImport createLargeRealm() {
+        List<UserRepresentation> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            CredentialRepresentation credential = new CredentialRepresentation();
+            credential.setType("password");
+            credential.setValue("password-of-user-" + i);
+
+            UserRepresentation user = new UserRepresentation();
+            user.setUsername("user-" + i);
+            user.setEmail("user-" + i + "@example.com");
+            user.setFirstName("First " + i);
+            user.setLastName("Last " + i);
+            user.setEnabled(true);
+            user.setCredentials(Collections.singletonList(credential));
+            user.setRealmRoles(Collections.singletonList("user"));
+            users.add(user);
+        }
+
+        RealmImport realm = new RealmImport();
+        realm.setRealm(REALM);
+        realm.setEnabled(true);
+        realm.setUsers(users);
+
+        return realm;
+    }
+
+    private static class Result {
+        private final String mode;
+        private final String checksum;
+        private final int users;
+        private final long allocatedBytes;
+        private final Duration duration;
+
+        Result(String mode, String checksum, int users, long allocatedBytes, Duration duration) {
+            this.mode = mode;
+            this.checksum = checksum;
+            this.users = users;
+            this.allocatedBytes = allocatedBytes;
+            this.duration = duration;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %16d %10d ms", mode, allocatedBytes, duration.toMillis());
+        }
+    }
+}
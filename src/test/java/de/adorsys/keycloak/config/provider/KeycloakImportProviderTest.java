@@ -0,0 +1,329 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.model.UserIterator;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.checksum.ChecksumService;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import de.adorsys.keycloak.config.util.ChecksumUtil;
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeycloakImportProviderTest {
+    // the unknown property fails the import unless the file is skipped
+    private static final String UNCHANGED_IMPORT = "{\"realm\":\"unchanged\",\"unknown\":{\"nested\":[1,2]}}";
+    private static final String CHANGED_IMPORT = "{\"enabled\":true,\"realm\":\"changed\"}";
+    private static final String NEW_IMPORT = "{\"realm\":\"new\"}";
+
+    private StandInKeycloakServer server;
+    private Path importDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/unchanged", exchange -> handleRealm(exchange, "unchanged", ChecksumUtil.checksum(UNCHANGED_IMPORT)));
+        server.handle("/auth/admin/realms/changed", exchange -> handleRealm(exchange, "changed", "outdated"));
+
+        importDirectory = Files.createTempDirectory("import-");
+        Files.write(importDirectory.resolve("unchanged.json"), UNCHANGED_IMPORT.getBytes(StandardCharsets.UTF_8));
+        Files.write(importDirectory.resolve("changed.json"), CHANGED_IMPORT.getBytes(StandardCharsets.UTF_8));
+        Files.write(importDirectory.resolve("new.json"), NEW_IMPORT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+
+        try (Stream<Path> files = Files.walk(importDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void shouldSkipUnchangedFiles() {
+        List<RealmImport> realmImports = importProvider(false).get().collect(Collectors.toList());
+
+        assertThat(realmImports.size(), is(2));
+        assertThat(realmImports.get(0).getRealm(), is("changed"));
+        assertThat(realmImports.get(0).getChecksum(), is(ChecksumUtil.checksum(CHANGED_IMPORT)));
+        assertThat(realmImports.get(1).getRealm(), is("new"));
+        assertThat(realmImports.get(1).getChecksum(), is(ChecksumUtil.checksum(NEW_IMPORT)));
+    }
+
+    @Test
+    void shouldCheckFileAfterPreviousFileOfSameRealmIsImported() throws IOException {
+        String first = "{\"realm\":\"split\",\"enabled\":true}";
+        String second = "{\"realm\":\"split\",\"displayName\":\"second\"}";
+
+        // the last run imported the second file last
+        AtomicReference<String> storedChecksum = new AtomicReference<>(ChecksumUtil.checksum(second));
+        server.handle("/auth/admin/realms/split", exchange -> {
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                RealmRepresentation realm = new ObjectMapper().readValue(exchange.getRequestBody(), RealmRepresentation.class);
+                storedChecksum.set(realm.getAttributes().get("de.adorsys.keycloak.config.import-checksum-default"));
+                respond(exchange, 204, "");
+            } else {
+                handleRealm(exchange, "split", storedChecksum.get());
+            }
+        });
+
+        Path splitDirectory = importDirectory.resolve("split");
+        Files.createDirectory(splitDirectory);
+        Files.write(splitDirectory.resolve("split-1.json"), first.getBytes(StandardCharsets.UTF_8));
+        Files.write(splitDirectory.resolve("split-2.json"), second.getBytes(StandardCharsets.UTF_8));
+
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(splitDirectory.toString(), false, "default", true,
+                ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null);
+        RealmRepository realmRepository = new RealmRepository(server.keycloakProvider());
+        ChecksumService checksumService = new ChecksumService(realmRepository, importConfigProperties,
+                new EntityFingerprintService(realmRepository, importConfigProperties));
+
+        try (Stream<RealmImport> realmImports = new KeycloakImportProvider(importConfigProperties, checksumService).get()) {
+            Iterator<RealmImport> iterator = realmImports.iterator();
+
+            RealmImport firstImport = iterator.next();
+            assertThat(firstImport.getChecksum(), is(ChecksumUtil.checksum(first)));
+            checksumService.doImport(firstImport);
+
+            // the import of the first file replaced the checksum of the second one
+            assertThat(iterator.next().getChecksum(), is(ChecksumUtil.checksum(second)));
+            assertThat(iterator.hasNext(), is(false));
+        }
+    }
+
+    @Test
+    void shouldParseFilesOneByOne() {
+        Iterator<RealmImport> realmImports = importProvider(true).get().iterator();
+
+        assertThat(realmImports.next().getRealm(), is("changed"));
+        assertThat(realmImports.next().getRealm(), is("new"));
+        assertThrows(InvalidImportException.class, realmImports::next);
+    }
+
+    @Test
+    void shouldParseAllFilesIfForced() {
+        Stream<RealmImport> realmImports = importProvider(true).get();
+
+        assertThrows(InvalidImportException.class, () -> realmImports.collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldReturnFilesInOrderOfTheirNames() throws IOException {
+        Path manyDirectory = importDirectory.resolve("many");
+        Files.createDirectory(manyDirectory);
+
+        List<String> realms = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String realm = String.format("realm-%02d", i);
+            realms.add(realm);
+            Files.write(manyDirectory.resolve(realm + ".json"), ("{\"realm\":\"" + realm + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+
+        KeycloakImportProvider keycloakImportProvider = importProvider(new ImportConfigProperties(manyDirectory.toString(), true, "default", true,
+                ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null));
+
+        try (Stream<RealmImport> realmImports = keycloakImportProvider.get()) {
+            assertThat(realmImports.map(RealmImport::getRealm).collect(Collectors.toList()), is(realms));
+        }
+    }
+
+    @Test
+    void shouldReportErrorsOfAllFiles() throws IOException {
+        Path invalidDirectory = importDirectory.resolve("invalid");
+        Files.createDirectory(invalidDirectory);
+        Files.write(invalidDirectory.resolve("a.json"), "{\"realm\":\"a\",\"unknown\":1}".getBytes(StandardCharsets.UTF_8));
+        Files.write(invalidDirectory.resolve("b.json"), "{\"realm\":\"b\"}".getBytes(StandardCharsets.UTF_8));
+        Files.write(invalidDirectory.resolve("c.json"), "{\"realm\":".getBytes(StandardCharsets.UTF_8));
+
+        InvalidImportException exception = assertThrows(InvalidImportException.class,
+                () -> importProvider(true).readRealmImportsFromDirectory(invalidDirectory.toFile()));
+
+        assertThat(exception.getMessage(), startsWith("2 import files could not be read:"));
+        assertThat(exception.getMessage(), containsString("\n - a.json: "));
+        assertThat(exception.getMessage(), containsString("\n - c.json: "));
+        assertThat(exception.getSuppressed().length, is(1));
+    }
+
+    @Test
+    void shouldNotCheckFilesAfterFailedFile() throws IOException {
+        server.handle("/auth/admin/realms/failing", exchange -> respond(exchange, 500, ""));
+        server.handle("/auth/admin/realms/after", exchange -> handleRealm(exchange, "after", "outdated"));
+
+        Path failingDirectory = importDirectory.resolve("failing");
+        Files.createDirectory(failingDirectory);
+        Files.write(failingDirectory.resolve("a.json"), "{\"realm\":\"failing\"}".getBytes(StandardCharsets.UTF_8));
+        Files.write(failingDirectory.resolve("b.json"), "{\"realm\":\"after\"}".getBytes(StandardCharsets.UTF_8));
+
+        KeycloakImportProvider keycloakImportProvider = importProvider(new ImportConfigProperties(failingDirectory.toString(), false, "default", true,
+                ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null));
+
+        try (Stream<RealmImport> realmImports = keycloakImportProvider.get()) {
+            assertThrows(RuntimeException.class, () -> realmImports.collect(Collectors.toList()));
+        }
+
+        assertThat(server.requests("/auth/admin/realms/after"), is(0));
+    }
+
+    @Test
+    void shouldStreamUsers() throws IOException {
+        Path streamedDirectory = importDirectory.resolve("streamed");
+        Files.createDirectory(streamedDirectory);
+        Files.write(streamedDirectory.resolve("streamed.json"), ("{\"realm\":\"streamed\",\"users\":[{\"username\":\"first\"},"
+                + "{\"username\":\"second\",\"groups\":[\"users\"]},{\"username\":\"third\",\"unknown\":true}],\"enabled\":true}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        KeycloakImportProvider keycloakImportProvider = importProvider(new ImportConfigProperties(streamedDirectory.toString(), true, "default", true,
+                ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, true, false, null));
+
+        RealmImport realmImport = keycloakImportProvider.readRealmImportsFromDirectory(streamedDirectory.toFile())
+                .getRealmImports().get("streamed.json");
+
+        assertThat(realmImport.getUsers(), is(nullValue()));
+        assertThat(realmImport.isEnabled(), is(true));
+        assertThat(realmImport.hasUsers(), is(true));
+
+        try (UserIterator users = realmImport.iterateUsers()) {
+            assertThat(users.next().getUsername(), is("first"));
+            assertThat(users.next().getGroups(), is(Collections.singletonList("users")));
+            assertThrows(InvalidImportException.class, users::next);
+        }
+    }
+
+    @Test
+    void shouldBindDeferredSectionsOnFirstUse() throws IOException {
+        String deferred = "{\"realm\":\"deferred\",\"roles\":{\"realm\":[{\"name\":\"user\"}]},"
+                + "\"clients\":[{\"clientId\":\"app\",\"unknown\":true}],\"enabled\":true}";
+
+        RealmImport realmImport = readDeferred(deferred);
+
+        assertThat(realmImport.isEnabled(), is(true));
+        assertThat(realmImport.getRoles().getRealm().get(0).getName(), is("user"));
+
+        // serializing doesn't bind the sections
+        RealmRepresentation realm = CloneUtil.deepClone(realmImport, RealmRepresentation.class, "clients");
+        assertThat(realm.getRoles().getRealm().get(0).getName(), is("user"));
+
+        InvalidImportException exception = assertThrows(InvalidImportException.class, realmImport::getClients);
+        assertThat(exception.getMessage(), startsWith("Cannot read the clients of realm 'deferred': "));
+    }
+
+    @Test
+    void shouldSerializeDeferredSectionsLikeBoundSections() throws IOException {
+        String sections = "{\"realm\":\"deferred\",\"enabled\":true,"
+                + "\"clients\":[{\"clientId\":\"app\",\"redirectUris\":[\"https://app\"]}],"
+                + "\"roles\":{\"realm\":[{\"name\":\"user\"}],\"client\":{\"app\":[{\"name\":\"admin\"}]}},"
+                + "\"groups\":[{\"name\":\"users\",\"realmRoles\":[\"user\"]}],"
+                + "\"users\":[{\"username\":\"first\",\"groups\":[\"users\"]}],"
+                + "\"components\":{\"org.keycloak.keys.KeyProvider\":[{\"name\":\"rsa\",\"providerId\":\"rsa-generated\"}]},"
+                + "\"authenticationFlows\":[{\"alias\":\"flow\",\"topLevel\":true,\"authenticationExecutions\":[]}]}";
+
+        RealmImport deferred = readDeferred(sections);
+        RealmImport bound = readDeferred(sections);
+        bound.getClients();
+        bound.getRoles();
+        bound.getGroups();
+        bound.getUsers();
+        bound.getComponents();
+        bound.getAuthenticationFlows();
+
+        assertThat(CloneUtil.deepEquals(
+                CloneUtil.deepClone(deferred, RealmRepresentation.class),
+                CloneUtil.deepClone(bound, RealmRepresentation.class)
+        ), is(true));
+        assertThat(deferred.getUsers().get(0).getGroups(), is(Collections.singletonList("users")));
+        assertThat(deferred.getAuthenticationFlows().get(0).getAlias(), is("flow"));
+    }
+
+    @Test
+    void shouldSkipUnchangedYamlFiles() throws IOException {
+        String yaml = "# comment\nenabled: true\nattributes:\n  realm: other\nrealm: yaml\n";
+        server.handle("/auth/admin/realms/yaml", exchange -> handleRealm(exchange, "yaml", ChecksumUtil.checksum(yaml)));
+
+        Path yamlDirectory = importDirectory.resolve("yaml");
+        Files.createDirectory(yamlDirectory);
+        Files.write(yamlDirectory.resolve("unchanged.yaml"), yaml.getBytes(StandardCharsets.UTF_8));
+
+        KeycloakImportProvider keycloakImportProvider = importProvider(new ImportConfigProperties(yamlDirectory.toString(), false, "default", true,
+                ImportConfigProperties.ImportFileType.YAML, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null));
+
+        assertThat(keycloakImportProvider.get().count(), is(0L));
+    }
+
+    private RealmImport readDeferred(String realm) throws IOException {
+        Path deferredDirectory = importDirectory.resolve("deferred");
+        Files.createDirectories(deferredDirectory);
+        Files.write(deferredDirectory.resolve("deferred.json"), realm.getBytes(StandardCharsets.UTF_8));
+
+        KeycloakImportProvider keycloakImportProvider = importProvider(new ImportConfigProperties(deferredDirectory.toString(), true, "default", true,
+                ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, true, null));
+
+        return keycloakImportProvider.readRealmImportsFromDirectory(deferredDirectory.toFile())
+                .getRealmImports().get("deferred.json");
+    }
+
+    private KeycloakImportProvider importProvider(boolean force) {
+        return importProvider(new ImportConfigProperties(importDirectory.toString(), force, "default", true,
+                ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null));
+    }
+
+    private KeycloakImportProvider importProvider(ImportConfigProperties importConfigProperties) {
+        RealmRepository realmRepository = new RealmRepository(server.keycloakProvider());
+        ChecksumService checksumService = new ChecksumService(realmRepository, importConfigProperties,
+                new EntityFingerprintService(realmRepository, importConfigProperties));
+
+        return new KeycloakImportProvider(importConfigProperties, checksumService);
+    }
+
+    private void handleRealm(HttpExchange exchange, String realm, String checksum) throws IOException {
+        respond(exchange, 200, "{\"realm\":\"" + realm + "\",\"attributes\":{\"de.adorsys.keycloak.config.import-checksum-default\":\"" + checksum + "\"}}");
+    }
+}
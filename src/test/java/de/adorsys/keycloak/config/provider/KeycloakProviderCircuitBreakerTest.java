@@ -0,0 +1,123 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.exception.KeycloakProviderException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCircuitBreaker;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.InternalServerErrorException;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noCircuitBreaker;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noCompression;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noConcurrencyLimit;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noRetry;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeycloakProviderCircuitBreakerTest {
+    private static final String REALM = "breaker";
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private StandInKeycloakServer server;
+    private KeycloakProvider keycloakProvider;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/" + REALM, this::handleRealm);
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (keycloakProvider != null) {
+            keycloakProvider.close();
+        }
+
+        server.close();
+    }
+
+    @Test
+    void shouldStopSendingRequestsWhenBreakerIsOpen() {
+        ImportConfigProperties importConfigProperties = StandInKeycloakServer.importProperties(null);
+        keycloakProvider = new KeycloakProvider(
+                server.properties(noCompression(), noConcurrencyLimit(), noRetry(), new KeycloakCircuitBreaker(true, 2, Duration.ofMinutes(1))),
+                importConfigProperties,
+                new DeadlineService(importConfigProperties),
+                new AdminApiMetrics()
+        );
+
+        Keycloak keycloak = keycloakProvider.get();
+
+        assertThrows(InternalServerErrorException.class, () -> keycloak.realm(REALM).toRepresentation());
+        assertThrows(InternalServerErrorException.class, () -> keycloak.realm(REALM).toRepresentation());
+
+        KeycloakProviderException thrown = assertThrows(KeycloakProviderException.class, () -> keycloak.realm(REALM).toRepresentation());
+
+        assertThat(thrown.getMessage(), containsString("Keycloak is not available"));
+        assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    void shouldCancelRequestsAfterDeadline() throws InterruptedException {
+        ImportConfigProperties importConfigProperties = StandInKeycloakServer.importProperties(Duration.ofMillis(1));
+        DeadlineService deadlineService = new DeadlineService(importConfigProperties);
+        keycloakProvider = new KeycloakProvider(
+                server.properties(noCompression(), noConcurrencyLimit(), noRetry(), noCircuitBreaker()),
+                importConfigProperties,
+                deadlineService,
+                new AdminApiMetrics()
+        );
+
+        Keycloak keycloak = keycloakProvider.get();
+        keycloak.tokenManager().getAccessToken();
+        deadlineService.start();
+        Thread.sleep(10);
+
+        ImportProcessingException thrown = assertThrows(ImportProcessingException.class, () -> keycloak.realm(REALM).toRepresentation());
+
+        assertThat(thrown.getMessage(), containsString("Import deadline of PT0.001S exceeded"));
+        assertThat(requests.get(), is(0));
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        StreamUtils.drain(exchange.getRequestBody());
+        requests.incrementAndGet();
+
+        respond(exchange, 500, "");
+    }
+}
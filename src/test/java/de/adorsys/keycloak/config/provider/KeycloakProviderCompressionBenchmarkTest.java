@@ -0,0 +1,229 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCompression;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noCircuitBreaker;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noConcurrencyLimit;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noRetry;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares the admin client traffic with and without gzip against a local stand-in for the keycloak admin api.
+ */
+class KeycloakProviderCompressionBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakProviderCompressionBenchmarkTest.class);
+
+    private static final String REALM = "benchmark";
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong compressedRequests = new AtomicLong();
+
+    private StandInKeycloakServer server;
+    private byte[] realmJson;
+    private byte[] realmJsonGzip;
+    private String lastUpdatedRealm;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        realmJson = objectMapper.writeValueAsBytes(createLargeRealm());
+        realmJsonGzip = gzip(realmJson);
+
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/" + REALM, this::handleRealm);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void shouldSaveBytesWithCompression() {
+        Result plain = run(new KeycloakCompression(false, false, DataSize.ofKilobytes(4)));
+        Result gzip = run(new KeycloakCompression(true, true, DataSize.ofKilobytes(4)));
+
+        logger.info("{} x GET + PUT of a {} KiB realm", ITERATIONS, realmJson.length / 1024);
+        logger.info("{}", String.format("%-6s %14s %14s %12s", "mode", "response bytes", "request bytes", "avg latency"));
+        logger.info("{}", plain);
+        logger.info("{}", gzip);
+
+        assertThat(gzip.responseBytes, lessThan(plain.responseBytes / 2));
+        assertThat(gzip.requestBytes, lessThan(plain.requestBytes / 2));
+        assertThat(plain.compressedRequests, is(0L));
+        assertThat(gzip.compressedRequests, is((long) WARMUP + ITERATIONS));
+        assertThat(lastUpdatedRealm, is(REALM));
+    }
+
+    private Result run(KeycloakCompression compression) {
+        ImportConfigProperties importConfigProperties = StandInKeycloakServer.importProperties(null);
+        KeycloakProvider keycloakProvider = new KeycloakProvider(
+                server.properties(compression, noConcurrencyLimit(), noRetry(), noCircuitBreaker()),
+                importConfigProperties,
+                new DeadlineService(importConfigProperties),
+                new AdminApiMetrics()
+        );
+
+        try {
+            Keycloak keycloak = keycloakProvider.get();
+
+            for (int i = 0; i < WARMUP; i++) {
+                roundTrip(keycloak);
+            }
+
+            responseBytes.set(0);
+            requestBytes.set(0);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                roundTrip(keycloak);
+            }
+            long duration = System.nanoTime() - start;
+
+            return new Result(
+                    compression.isEnabled() ? "gzip" : "plain",
+                    responseBytes.get(),
+                    requestBytes.get(),
+                    compressedRequests.getAndSet(0),
+                    Duration.ofNanos(duration / ITERATIONS)
+            );
+        } finally {
+            keycloakProvider.close();
+        }
+    }
+
+    private void roundTrip(Keycloak keycloak) {
+        RealmRepresentation realm = keycloak.realm(REALM).toRepresentation();
+        keycloak.realm(REALM).update(realm);
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            byte[] body = StreamUtils.copyToByteArray(exchange.getRequestBody());
+            requestBytes.addAndGet(body.length);
+
+            InputStream content = new ByteArrayInputStream(body);
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                compressedRequests.incrementAndGet();
+                content = new GZIPInputStream(content);
+            }
+
+            lastUpdatedRealm = objectMapper.readValue(content, RealmRepresentation.class).getRealm();
+
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = realmJson;
+
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = realmJsonGzip;
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+
+        responseBytes.addAndGet(body.length);
+
+        respond(exchange, 200, body);
+    }
+
+    /**
+     * Large realms are mostly made of attributes, e.g. the chunks written by the state management
+     */
+    private RealmRepresentation createLargeRealm() {
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            attributes.put("de.adorsys.keycloak.config.state-" + REALM + "-clients-" + i,
+                    "[\"client-" + i + "\",\"client-" + (i + 1) + "\",\"client-" + (i + 2) + "\"]");
+        }
+
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm(REALM);
+        realm.setEnabled(true);
+        realm.setAttributes(attributes);
+
+        return realm;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static class Result {
+        private final String mode;
+        private final long responseBytes;
+        private final long requestBytes;
+        private final long compressedRequests;
+        private final Duration latency;
+
+        Result(String mode, long responseBytes, long requestBytes, long compressedRequests, Duration latency) {
+            this.mode = mode;
+            this.responseBytes = responseBytes;
+            this.requestBytes = requestBytes;
+            this.compressedRequests = compressedRequests;
+            this.latency = latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-6s %14d %14d %10.2fms", mode, responseBytes, requestBytes, latency.toNanos() / 1e6);
+        }
+    }
+}
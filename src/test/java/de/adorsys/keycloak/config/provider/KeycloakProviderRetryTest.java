@@ -0,0 +1,183 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConcurrencyLimit;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakRetry;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.Response;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noCircuitBreaker;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noCompression;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeycloakProviderRetryTest {
+    private static final String REALM = "retry";
+
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger gets = new AtomicInteger();
+    private final AtomicInteger posts = new AtomicInteger();
+
+    private StandInKeycloakServer server;
+    private KeycloakProvider keycloakProvider;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/" + REALM, this::handleRealm);
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (keycloakProvider != null) {
+            keycloakProvider.close();
+        }
+
+        server.close();
+    }
+
+    @Test
+    void shouldRetryTransientErrorsOnGet() {
+        keycloakProvider = createKeycloakProvider(10);
+        failuresLeft.set(2);
+
+        String realm = keycloakProvider.get().realm(REALM).toRepresentation().getRealm();
+
+        assertThat(realm, is(REALM));
+        assertThat(gets.get(), is(3));
+
+        RetryBudget retryBudget = keycloakProvider.getRetryBudget().orElseThrow(IllegalStateException::new);
+        assertThat(retryBudget.getRequests(), is(1L));
+        assertThat(retryBudget.getRetries(), is(2L));
+        assertThat(retryBudget.getExhaustedRequests(), is(0L));
+    }
+
+    @Test
+    void shouldFailAfterMaxRetries() {
+        keycloakProvider = createKeycloakProvider(10);
+        failuresLeft.set(100);
+
+        assertThrows(ServiceUnavailableException.class, () -> keycloakProvider.get().realm(REALM).toRepresentation());
+
+        assertThat(gets.get(), is(4));
+
+        RetryBudget retryBudget = keycloakProvider.getRetryBudget().orElseThrow(IllegalStateException::new);
+        assertThat(retryBudget.getRetries(), is(3L));
+        assertThat(retryBudget.getExhaustedRequests(), is(1L));
+    }
+
+    @Test
+    void shouldStopRetryingWhenBudgetIsDrained() {
+        keycloakProvider = createKeycloakProvider(1);
+        failuresLeft.set(100);
+
+        assertThrows(ServiceUnavailableException.class, () -> keycloakProvider.get().realm(REALM).toRepresentation());
+
+        assertThat(gets.get(), is(2));
+
+        RetryBudget retryBudget = keycloakProvider.getRetryBudget().orElseThrow(IllegalStateException::new);
+        assertThat(retryBudget.getRetries(), is(1L));
+        assertThat(retryBudget.getRejectedRetries(), is(1L));
+    }
+
+    @Test
+    void shouldNotRejectRetryAfterLastAttempt() {
+        keycloakProvider = createKeycloakProvider(3);
+        failuresLeft.set(100);
+
+        assertThrows(ServiceUnavailableException.class, () -> keycloakProvider.get().realm(REALM).toRepresentation());
+
+        assertThat(gets.get(), is(4));
+
+        RetryBudget retryBudget = keycloakProvider.getRetryBudget().orElseThrow(IllegalStateException::new);
+        assertThat(retryBudget.getRetries(), is(3L));
+        assertThat(retryBudget.getRejectedRetries(), is(0L));
+        assertThat(retryBudget.getExhaustedRequests(), is(1L));
+    }
+
+    @Test
+    void shouldNotRetryPost() {
+        keycloakProvider = createKeycloakProvider(10);
+        failuresLeft.set(100);
+
+        Response response = keycloakProvider.get().realm(REALM).users().create(new UserRepresentation());
+        response.close();
+
+        assertThat(response.getStatus(), is(503));
+        assertThat(posts.get(), is(1));
+    }
+
+    @Test
+    void shouldRetryPartialExport() {
+        keycloakProvider = createKeycloakProvider(10);
+        failuresLeft.set(1);
+
+        String realm = keycloakProvider.get().realm(REALM).partialExport(false, false).getRealm();
+
+        assertThat(realm, is(REALM));
+        assertThat(posts.get(), is(2));
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        StreamUtils.drain(exchange.getRequestBody());
+
+        if ("POST".equals(exchange.getRequestMethod())) {
+            posts.incrementAndGet();
+        } else {
+            gets.incrementAndGet();
+        }
+
+        if (failuresLeft.getAndDecrement() > 0) {
+            respond(exchange, 503, "");
+        } else {
+            respond(exchange, 200, "{\"realm\":\"" + REALM + "\"}");
+        }
+    }
+
+    private KeycloakProvider createKeycloakProvider(int budgetReserve) {
+        KeycloakConfigProperties properties = server.properties(
+                noCompression(),
+                new KeycloakConcurrencyLimit(true, 1, null, 0.9, Duration.ofSeconds(5)),
+                new KeycloakRetry(true, 3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, 0, budgetReserve),
+                noCircuitBreaker()
+        );
+        ImportConfigProperties importConfigProperties = StandInKeycloakServer.importProperties(null);
+
+        return new KeycloakProvider(properties, importConfigProperties, new DeadlineService(importConfigProperties), new AdminApiMetrics());
+    }
+}
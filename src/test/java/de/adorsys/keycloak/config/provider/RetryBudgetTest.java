@@ -0,0 +1,70 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class RetryBudgetTest {
+    @Test
+    void shouldAllowReserveAtStart() {
+        RetryBudget retryBudget = new RetryBudget(0, 2);
+
+        assertThat(retryBudget.canRetry(), is(true));
+        retryBudget.onRetry();
+        assertThat(retryBudget.canRetry(), is(true));
+        retryBudget.onRetry();
+        assertThat(retryBudget.canRetry(), is(false));
+
+        assertThat(retryBudget.getRetries(), is(2L));
+    }
+
+    @Test
+    void shouldRefillByRatioOfRequests() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 0);
+
+        for (int i = 0; i < 9; i++) {
+            retryBudget.onRequest();
+        }
+        assertThat(retryBudget.canRetry(), is(false));
+
+        retryBudget.onRequest();
+        retryBudget.onRequest();
+        assertThat(retryBudget.canRetry(), is(true));
+
+        assertThat(retryBudget.getRequests(), is(11L));
+    }
+
+    @Test
+    void shouldNotBankMoreThanReserve() {
+        RetryBudget retryBudget = new RetryBudget(1, 2);
+
+        for (int i = 0; i < 100; i++) {
+            retryBudget.onRequest();
+        }
+
+        retryBudget.onRetry();
+        retryBudget.onRetry();
+        assertThat(retryBudget.canRetry(), is(false));
+    }
+}
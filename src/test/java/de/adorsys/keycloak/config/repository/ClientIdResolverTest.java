@@ -0,0 +1,105 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class ClientIdResolverTest {
+    private static final String REALM = "resolver";
+
+    private final AtomicInteger listings = new AtomicInteger();
+    private final AtomicInteger searches = new AtomicInteger();
+
+    private StandInKeycloakServer server;
+    private ClientIdResolver clientIdResolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/" + REALM + "/clients", this::handleClients);
+
+        clientIdResolver = new ClientIdResolver(new RealmRepository(server.keycloakProvider()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldListClientsOnce() {
+        assertThat(clientIdResolver.tryToResolve(REALM, "app"), is(Optional.of("app-id")));
+        assertThat(clientIdResolver.tryToResolve(REALM, "web"), is(Optional.of("web-id")));
+        assertThat(clientIdResolver.tryToResolve(REALM, "app"), is(Optional.of("app-id")));
+
+        assertThat(listings.get(), is(1));
+        assertThat(searches.get(), is(0));
+    }
+
+    @Test
+    void shouldResolveAddedClientWithoutRequest() {
+        clientIdResolver.tryToResolve(REALM, "app");
+        clientIdResolver.add(REALM, "created", "created-id");
+
+        assertThat(clientIdResolver.tryToResolve(REALM, "created"), is(Optional.of("created-id")));
+        assertThat(searches.get(), is(0));
+    }
+
+    @Test
+    void shouldSearchUnknownClientAndRememberOnlyFound() {
+        assertThat(clientIdResolver.tryToResolve(REALM, "late"), is(Optional.of("late-id")));
+        assertThat(clientIdResolver.tryToResolve(REALM, "late"), is(Optional.of("late-id")));
+        assertThat(clientIdResolver.tryToResolve(REALM, "missing"), is(Optional.empty()));
+        assertThat(clientIdResolver.tryToResolve(REALM, "missing"), is(Optional.empty()));
+
+        assertThat(listings.get(), is(1));
+        assertThat(searches.get(), is(3));
+    }
+
+    private void handleClients(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+
+        if (query == null || !query.contains("clientId=")) {
+            listings.incrementAndGet();
+            respond(exchange, 200, "[{\"id\":\"app-id\",\"clientId\":\"app\"},{\"id\":\"web-id\",\"clientId\":\"web\"}]");
+            return;
+        }
+
+        searches.incrementAndGet();
+        if (query.contains("clientId=late")) {
+            respond(exchange, 200, "[{\"id\":\"late-id\",\"clientId\":\"late\"}]");
+        } else {
+            respond(exchange, 200, "[]");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.ComponentRepresentation;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class ComponentIndexTest {
+    private static final String REALM = "components";
+    private static final String REALM_PATH = "/auth/admin/realms/" + REALM;
+    private static final String COMPONENTS_PATH = REALM_PATH + "/components";
+
+    private static final String STORAGE_PROVIDER = "org.keycloak.storage.UserStorageProvider";
+    private static final String LDAP_MAPPER = "org.keycloak.storage.ldap.mappers.LDAPStorageMapper";
+
+    private StandInKeycloakServer server;
+    private ComponentIndex componentIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle(REALM_PATH, this::handleRealm);
+
+        componentIndex = new ComponentIndex(new RealmRepository(server.keycloakProvider()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldListComponentsOnlyOnce() {
+        Optional<ComponentRepresentation> ldap = componentIndex.find(REALM, null, STORAGE_PROVIDER, null, "ldap");
+        Optional<ComponentRepresentation> mapper = componentIndex.find(REALM, "ldap-id", LDAP_MAPPER, null, "email");
+        Optional<ComponentRepresentation> otherType = componentIndex.find(REALM, null, LDAP_MAPPER, null, "ldap");
+
+        assertThat(ldap.get().getId(), is("ldap-id"));
+        assertThat(mapper.get().getId(), is("email-id"));
+        assertThat(otherType.isPresent(), is(false));
+        assertThat(componentIndex.findChildren(REALM, "email-id").isEmpty(), is(true));
+        assertThat(server.requests(COMPONENTS_PATH), is(1));
+        assertThat(server.requests(REALM_PATH), is(1));
+        assertThat(server.requests(), is(2));
+    }
+
+    @Test
+    void shouldFetchWrittenComponentOnceAndListItsChildren() {
+        componentIndex.getRealmId(REALM);
+
+        ComponentRepresentation created = new ComponentRepresentation();
+        created.setId("created-id");
+        created.setName("created");
+        created.setProviderType(STORAGE_PROVIDER);
+        componentIndex.put(REALM, created);
+
+        Optional<ComponentRepresentation> first = componentIndex.find(REALM, null, STORAGE_PROVIDER, null, "created");
+        Optional<ComponentRepresentation> second = componentIndex.find(REALM, "realm-id", STORAGE_PROVIDER, null, "created");
+        componentIndex.findChildren(REALM, "created-id");
+        componentIndex.findChildren(REALM, "created-id");
+
+        assertThat(first.get().getConfig().getFirst("editMode"), is("READ_ONLY"));
+        assertThat(second.get().getConfig().getFirst("editMode"), is("READ_ONLY"));
+        assertThat(server.requests(COMPONENTS_PATH + "/created-id"), is(1));
+        assertThat(server.requests(COMPONENTS_PATH + "?parent=created-id"), is(1));
+    }
+
+    @Test
+    void shouldForgetRemovedComponent() {
+        componentIndex.getRealmId(REALM);
+
+        componentIndex.remove(REALM, "ldap-id");
+        componentIndex.remove(REALM, "ldap-id");
+
+        assertThat(componentIndex.find(REALM, null, STORAGE_PROVIDER, null, "ldap").isPresent(), is(false));
+        assertThat(server.requests(COMPONENTS_PATH), is(1));
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        String request = query == null ? path : path + "?" + query;
+
+        if (request.equals(REALM_PATH)) {
+            respond(exchange, 200, "{\"id\":\"realm-id\",\"realm\":\"" + REALM + "\"}");
+        } else if (request.equals(COMPONENTS_PATH)) {
+            respond(exchange, 200, "["
+                    + "{\"id\":\"ldap-id\",\"name\":\"ldap\",\"providerType\":\"" + STORAGE_PROVIDER + "\",\"parentId\":\"realm-id\"},"
+                    + "{\"id\":\"email-id\",\"name\":\"email\",\"providerType\":\"" + LDAP_MAPPER + "\",\"parentId\":\"ldap-id\"}"
+                    + "]");
+        } else if (request.equals(COMPONENTS_PATH + "/created-id")) {
+            respond(exchange, 200, "{\"id\":\"created-id\",\"name\":\"created\",\"providerType\":\"" + STORAGE_PROVIDER + "\","
+                    + "\"parentId\":\"realm-id\",\"config\":{\"editMode\":[\"READ_ONLY\"]}}");
+        } else if (request.startsWith(COMPONENTS_PATH + "?parent=")) {
+            respond(exchange, 200, "[]");
+        } else {
+            respond(exchange, 404, "");
+        }
+    }
+}
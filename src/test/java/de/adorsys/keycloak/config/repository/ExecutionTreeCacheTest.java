@@ -0,0 +1,142 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.AuthenticationExecutionInfoRepresentation;
+
+import java.io.IOException;
+import java.util.List;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class ExecutionTreeCacheTest {
+    private static final String REALM = "flows";
+    private static final String FLOWS_PATH = "/auth/admin/realms/" + REALM + "/authentication/flows";
+    private static final String BROWSER_EXECUTIONS_PATH = FLOWS_PATH + "/my-browser/executions";
+    private static final String FORMS_EXECUTIONS_PATH = FLOWS_PATH + "/my-forms/executions";
+
+    private StandInKeycloakServer server;
+    private ExecutionTreeCache executionTreeCache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle(FLOWS_PATH, this::handleFlows);
+
+        executionTreeCache = new ExecutionTreeCache(new RealmRepository(server.keycloakProvider()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldFetchTreeAndNonTopLevelFlowOnlyOnce() {
+        executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getExecutions(REALM, "my-browser").get(0).setRequirement("REQUIRED");
+        executionTreeCache.getNonTopLevelFlow(REALM, "my-browser", "forms-id");
+        executionTreeCache.getNonTopLevelFlow(REALM, "my-browser", "forms-id");
+
+        assertThat(executionTreeCache.getExecutions(REALM, "my-browser").get(0).getRequirement(), is("ALTERNATIVE"));
+        assertThat(server.requests(BROWSER_EXECUTIONS_PATH), is(1));
+        assertThat(server.requests(FLOWS_PATH + "/forms-id"), is(1));
+    }
+
+    @Test
+    void shouldDropTreesContainingWrittenFlow() {
+        executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getExecutions(REALM, "my-forms");
+
+        executionTreeCache.invalidate(REALM, "my-forms");
+        executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getExecutions(REALM, "my-forms");
+
+        assertThat(server.requests(BROWSER_EXECUTIONS_PATH), is(2));
+        assertThat(server.requests(FORMS_EXECUTIONS_PATH), is(2));
+    }
+
+    @Test
+    void shouldDropTreesContainingWrittenExecutionOrConfig() {
+        executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getExecutions(REALM, "my-forms");
+
+        executionTreeCache.invalidateExecution(REALM, "cookie-id");
+        executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getExecutions(REALM, "my-forms");
+
+        assertThat(server.requests(BROWSER_EXECUTIONS_PATH), is(2));
+        assertThat(server.requests(FORMS_EXECUTIONS_PATH), is(1));
+
+        executionTreeCache.invalidateAuthenticatorConfig(REALM, "otp-config-id");
+        executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getExecutions(REALM, "my-forms");
+
+        assertThat(server.requests(BROWSER_EXECUTIONS_PATH), is(3));
+        assertThat(server.requests(FORMS_EXECUTIONS_PATH), is(2));
+    }
+
+    @Test
+    void shouldWriteUpdatedExecutionThrough() {
+        executionTreeCache.getExecutions(REALM, "my-forms");
+        executionTreeCache.getNonTopLevelFlow(REALM, "my-browser", "forms-id");
+
+        AuthenticationExecutionInfoRepresentation otp = executionTreeCache.getExecutions(REALM, "my-forms").get(0);
+        otp.setRequirement("REQUIRED");
+        executionTreeCache.update(REALM, otp);
+
+        List<AuthenticationExecutionInfoRepresentation> browser = executionTreeCache.getExecutions(REALM, "my-browser");
+        executionTreeCache.getNonTopLevelFlow(REALM, "my-browser", "forms-id");
+
+        assertThat(browser.get(2).getRequirement(), is("REQUIRED"));
+        assertThat(executionTreeCache.getExecutions(REALM, "my-forms").get(0).getRequirement(), is("REQUIRED"));
+        assertThat(server.requests(BROWSER_EXECUTIONS_PATH), is(1));
+        assertThat(server.requests(FORMS_EXECUTIONS_PATH), is(1));
+        assertThat(server.requests(FLOWS_PATH + "/forms-id"), is(2));
+    }
+
+    private void handleFlows(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+
+        String otp = "{\"id\":\"otp-id\",\"providerId\":\"auth-otp-form\",\"requirement\":\"OPTIONAL\",\"authenticationConfig\":\"otp-config-id\",\"level\":1}";
+
+        if (path.equals(BROWSER_EXECUTIONS_PATH)) {
+            respond(exchange, 200, "["
+                    + "{\"id\":\"cookie-id\",\"providerId\":\"auth-cookie\",\"requirement\":\"ALTERNATIVE\",\"level\":0},"
+                    + "{\"id\":\"forms-execution-id\",\"displayName\":\"my-forms\",\"authenticationFlow\":true,\"flowId\":\"forms-id\",\"level\":0},"
+                    + otp
+                    + "]");
+        } else if (path.equals(FORMS_EXECUTIONS_PATH)) {
+            respond(exchange, 200, "[" + otp.replace("\"level\":1", "\"level\":0") + "]");
+        } else if (path.equals(FLOWS_PATH + "/forms-id")) {
+            respond(exchange, 200, "{\"id\":\"forms-id\",\"alias\":\"my-forms\",\"topLevel\":false}");
+        } else {
+            respond(exchange, 404, "");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.GroupRepresentation;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class GroupTreeTest {
+    private static final String REALM = "groups";
+    private static final String REALM_PATH = "/auth/admin/realms/" + REALM;
+    private static final String GROUPS_PATH = REALM_PATH + "/groups";
+    private static final String GROUP_BY_PATH_PATH = REALM_PATH + "/group-by-path";
+
+    private StandInKeycloakServer server;
+    private GroupTree groupTree;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle(REALM_PATH, this::handleRealm);
+
+        groupTree = new GroupTree(new RealmRepository(server.keycloakProvider()), new SingleFlight());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldListHierarchyOnlyOnce() {
+        Optional<GroupRepresentation> parent = groupTree.findByPath(REALM, "/parent");
+        Optional<GroupRepresentation> child = groupTree.findByPath(REALM, "/parent/child");
+        Optional<GroupRepresentation> subChild = groupTree.findSubGroup(REALM, "child-id", "sub-child");
+
+        assertThat(parent.get().getId(), is("parent-id"));
+        assertThat(child.get().getId(), is("child-id"));
+        assertThat(subChild.get().getPath(), is("/parent/child/sub-child"));
+        assertThat(server.requests(GROUPS_PATH), is(1));
+        assertThat(server.requests(), is(1));
+    }
+
+    @Test
+    void shouldResolveUnknownPathByEndpoint() {
+        Optional<GroupRepresentation> late = groupTree.findByPath(REALM, "/parent/late");
+        Optional<GroupRepresentation> missing = groupTree.findByPath(REALM, "/missing");
+
+        groupTree.findByPath(REALM, "/parent/late");
+        groupTree.findByPath(REALM, "/missing");
+
+        assertThat(late.get().getId(), is("late-id"));
+        assertThat(missing.isPresent(), is(false));
+        assertThat(server.requests(GROUP_BY_PATH_PATH + "/parent/late"), is(1));
+        assertThat(server.requests(GROUP_BY_PATH_PATH + "/missing"), is(2));
+    }
+
+    @Test
+    void shouldFollowCreatesAndDeletes() {
+        groupTree.findByPath(REALM, "/parent");
+
+        groupTree.add(REALM, "parent-id", "created", "created-id");
+        assertThat(groupTree.findSubGroup(REALM, "parent-id", "created").get().getId(), is("created-id"));
+
+        groupTree.remove(REALM, "child-id");
+        assertThat(groupTree.findSubGroup(REALM, "parent-id", "child").isPresent(), is(false));
+        assertThat(groupTree.findSubGroup(REALM, "child-id", "sub-child").isPresent(), is(false));
+        assertThat(groupTree.findByPath(REALM, "/parent/created").isPresent(), is(true));
+        assertThat(server.requests(GROUPS_PATH), is(1));
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+
+        if (path.equals(GROUPS_PATH)) {
+            respond(exchange, 200, "[{\"id\":\"parent-id\",\"name\":\"parent\",\"path\":\"/parent\",\"subGroups\":["
+                    + "{\"id\":\"child-id\",\"name\":\"child\",\"path\":\"/parent/child\",\"subGroups\":["
+                    + "{\"id\":\"sub-child-id\",\"name\":\"sub-child\",\"path\":\"/parent/child/sub-child\"}]}]}]");
+        } else if (path.equals(GROUP_BY_PATH_PATH + "/parent/late")) {
+            respond(exchange, 200, "{\"id\":\"late-id\",\"name\":\"late\",\"path\":\"/parent/late\"}");
+        } else {
+            respond(exchange, 404, "");
+        }
+    }
+}
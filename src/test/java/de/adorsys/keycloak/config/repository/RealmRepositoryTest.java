@@ -0,0 +1,87 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.io.IOException;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class RealmRepositoryTest {
+    private static final String REALM = "cached";
+    private static final String REALM_PATH = "/auth/admin/realms/" + REALM;
+
+    private StandInKeycloakServer server;
+    private RealmRepository realmRepository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle(REALM_PATH, this::handleRealm);
+
+        realmRepository = new RealmRepository(server.keycloakProvider());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldFetchRealmOnlyOnce() {
+        assertThat(realmRepository.exists(REALM), is(true));
+
+        realmRepository.get(REALM).getAttributes().put("changed", "by caller");
+        RealmRepresentation existingRealm = realmRepository.get(REALM);
+
+        assertThat(existingRealm.getAttributes().containsKey("changed"), is(false));
+        assertThat(server.requests("GET", REALM_PATH), is(1));
+    }
+
+    @Test
+    void shouldFetchRealmAgainAfterWrite() {
+        RealmRepresentation existingRealm = realmRepository.get(REALM);
+
+        realmRepository.update(existingRealm);
+        realmRepository.get(REALM);
+        realmRepository.invalidate(REALM);
+        realmRepository.get(REALM);
+
+        assertThat(server.requests("PUT", REALM_PATH), is(1));
+        assertThat(server.requests("GET", REALM_PATH), is(3));
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("GET")) {
+            respond(exchange, 200, "{\"id\":\"realm-id\",\"realm\":\"" + REALM + "\",\"attributes\":{\"checksum\":\"1234\"}}");
+        } else {
+            respond(exchange, 204, "");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.repository.RealmSnapshot.Section;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.ClientRepresentation;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class RealmSnapshotTest {
+    private final AtomicInteger fallbacks = new AtomicInteger();
+    private RealmSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new RealmSnapshot("test");
+
+        snapshot.index(Section.CLIENTS).put("my-client", "client-id-1", client("client-id-1", "my-client"));
+    }
+
+    @Test
+    void shouldAnswerFromIndex() {
+        Optional<ClientRepresentation> client = snapshot.lookup(Section.CLIENTS, "my-client", this::fallback);
+
+        assertThat(client.isPresent(), is(true));
+        assertThat(client.get().getId(), is("client-id-1"));
+        assertThat(fallbacks.get(), is(0));
+    }
+
+    @Test
+    void shouldAnswerAbsentKeyFromIndex() {
+        Optional<ClientRepresentation> client = snapshot.lookup(Section.CLIENTS, "unknown", this::fallback);
+
+        assertThat(client.isPresent(), is(false));
+        assertThat(fallbacks.get(), is(0));
+    }
+
+    @Test
+    void shouldReturnIsolatedCopies() {
+        snapshot.<ClientRepresentation>lookup(Section.CLIENTS, "my-client", this::fallback).get().setEnabled(false);
+
+        ClientRepresentation client = snapshot.<ClientRepresentation>lookup(Section.CLIENTS, "my-client", this::fallback).get();
+
+        assertThat(client.isEnabled() == null, is(true));
+    }
+
+    @Test
+    void shouldFallBackForSectionNotLoaded() {
+        snapshot.lookup(Section.IDENTITY_PROVIDERS, "my-idp", this::fallback);
+
+        assertThat(fallbacks.get(), is(1));
+    }
+
+    @Test
+    void shouldFallBackForStaleKey() {
+        snapshot.invalidate(Section.CLIENTS, "my-client");
+
+        snapshot.lookup(Section.CLIENTS, "my-client", this::fallback);
+
+        assertThat(fallbacks.get(), is(1));
+    }
+
+    @Test
+    void shouldFallBackForAbsentKeyAfterSideEffects() {
+        snapshot.invalidateAbsent(Section.CLIENTS);
+
+        snapshot.lookup(Section.CLIENTS, "unknown", this::fallback);
+        snapshot.lookup(Section.CLIENTS, "my-client", this::fallback);
+
+        assertThat(fallbacks.get(), is(1));
+    }
+
+    @Test
+    void shouldFallBackForStaleSection() {
+        snapshot.invalidate(Section.CLIENTS);
+
+        snapshot.lookup(Section.CLIENTS, "my-client", this::fallback);
+
+        assertThat(fallbacks.get(), is(1));
+    }
+
+    @Test
+    void shouldInvalidateKeysOfId() {
+        snapshot.invalidateId(Section.CLIENTS, "client-id-1");
+
+        snapshot.lookup(Section.CLIENTS, "my-client", this::fallback);
+
+        assertThat(fallbacks.get(), is(1));
+    }
+
+    @Test
+    void shouldIgnoreUnknownId() {
+        snapshot.invalidateId(Section.CLIENTS, "created-during-import");
+
+        snapshot.lookup(Section.CLIENTS, "my-client", this::fallback);
+
+        assertThat(fallbacks.get(), is(0));
+    }
+
+    private <T> Optional<T> fallback() {
+        fallbacks.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private static ClientRepresentation client(String id, String clientId) {
+        ClientRepresentation client = new ClientRepresentation();
+        client.setId(id);
+        client.setClientId(clientId);
+        return client;
+    }
+}
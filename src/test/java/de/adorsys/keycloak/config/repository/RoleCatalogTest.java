@@ -0,0 +1,143 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RoleRepresentation;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class RoleCatalogTest {
+    private static final String REALM = "catalog";
+    private static final String ADMIN_PATH = "/auth/admin/realms/" + REALM;
+
+    private StandInKeycloakServer server;
+    private AsyncWriteExecutor asyncWriteExecutor;
+    private RoleCatalog roleCatalog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle(ADMIN_PATH + "/roles", this::handle);
+        server.handle(ADMIN_PATH + "/clients", this::handle);
+        asyncWriteExecutor = new AsyncWriteExecutor(StandInKeycloakServer.importProperties(null));
+
+        RealmRepository realmRepository = new RealmRepository(server.keycloakProvider());
+        SingleFlight singleFlight = new SingleFlight();
+        ClientRepository clientRepository = new ClientRepository(
+                realmRepository,
+                singleFlight,
+                asyncWriteExecutor,
+                new RealmSnapshotRepository(realmRepository),
+                new ClientIdResolver(realmRepository)
+        );
+
+        roleCatalog = new RoleCatalog(realmRepository, clientRepository, singleFlight);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncWriteExecutor.shutdown();
+        server.close();
+    }
+
+    @Test
+    void shouldListRealmRolesOnce() {
+        assertThat(name(roleCatalog.findRealmRole(REALM, "admin")), is("admin"));
+        assertThat(name(roleCatalog.findRealmRole(REALM, "user")), is("user"));
+        assertThat(name(roleCatalog.findRealmRole(REALM, "admin")), is("admin"));
+
+        assertThat(server.requests(ADMIN_PATH + "/roles"), is(1));
+    }
+
+    @Test
+    void shouldFetchUnlistedRealmRoleOnItsOwn() {
+        assertThat(name(roleCatalog.findRealmRole(REALM, "created")), is("created"));
+        assertThat(name(roleCatalog.findRealmRole(REALM, "created")), is("created"));
+        assertThat(roleCatalog.findRealmRole(REALM, "missing").isPresent(), is(false));
+
+        assertThat(server.requests(ADMIN_PATH + "/roles/created"), is(1));
+        assertThat(server.requests(ADMIN_PATH + "/roles/missing"), is(1));
+    }
+
+    @Test
+    void shouldFetchForgottenRealmRoleAgain() {
+        roleCatalog.findRealmRole(REALM, "admin");
+        roleCatalog.forgetRealmRole(REALM, "admin");
+
+        assertThat(name(roleCatalog.findRealmRole(REALM, "admin")), is("admin"));
+
+        assertThat(server.requests(ADMIN_PATH + "/roles"), is(1));
+        assertThat(server.requests(ADMIN_PATH + "/roles/admin"), is(1));
+    }
+
+    @Test
+    void shouldListRolesOfEachClientOnce() {
+        assertThat(name(roleCatalog.findClientRole(REALM, "app", "reader")), is("reader"));
+        assertThat(name(roleCatalog.findClientRole(REALM, "app", "writer")), is("writer"));
+        assertThat(name(roleCatalog.findClientRole(REALM, "web", "viewer")), is("viewer"));
+        assertThat(roleCatalog.findClientRole(REALM, "web", "reader").isPresent(), is(false));
+
+        assertThat(server.requests(ADMIN_PATH + "/clients"), is(1));
+        assertThat(server.requests(ADMIN_PATH + "/clients/app-id/roles"), is(1));
+        assertThat(server.requests(ADMIN_PATH + "/clients/web-id/roles"), is(1));
+    }
+
+    private static String name(Optional<RoleRepresentation> role) {
+        return role.map(RoleRepresentation::getName).orElse(null);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+
+        switch (path) {
+            case ADMIN_PATH + "/roles":
+                respond(exchange, 200, "[{\"id\":\"1\",\"name\":\"admin\"},{\"id\":\"2\",\"name\":\"user\"}]");
+                break;
+            case ADMIN_PATH + "/roles/admin":
+                respond(exchange, 200, "{\"id\":\"1\",\"name\":\"admin\"}");
+                break;
+            case ADMIN_PATH + "/roles/created":
+                respond(exchange, 200, "{\"id\":\"3\",\"name\":\"created\"}");
+                break;
+            case ADMIN_PATH + "/clients":
+                respond(exchange, 200, "[{\"id\":\"app-id\",\"clientId\":\"app\"},{\"id\":\"web-id\",\"clientId\":\"web\"}]");
+                break;
+            case ADMIN_PATH + "/clients/app-id/roles":
+                respond(exchange, 200, "[{\"id\":\"4\",\"name\":\"reader\"},{\"id\":\"5\",\"name\":\"writer\"}]");
+                break;
+            case ADMIN_PATH + "/clients/web-id/roles":
+                respond(exchange, 200, "[{\"id\":\"6\",\"name\":\"viewer\"}]");
+                break;
+            default:
+                respond(exchange, 404, "{\"error\":\"Could not find role\"}");
+        }
+    }
+}
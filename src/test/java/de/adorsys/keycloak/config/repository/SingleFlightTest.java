@@ -0,0 +1,130 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldShareConcurrentLookup() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("realm", "client", "app", () -> {
+            lookups.incrementAndGet();
+            started.countDown();
+            await(release);
+            return result;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("realm", "client", "app", () -> {
+            lookups.incrementAndGet();
+            return new Object();
+        }));
+
+        // give the follower time to join the flight of the leader
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS), sameInstance(result));
+        assertThat(follower.get(5, TimeUnit.SECONDS), sameInstance(result));
+        assertThat(lookups.get(), is(1));
+    }
+
+    @Test
+    void shouldShareException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("realm", "user", "john", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("lookup failed");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("realm", "user", "john", () -> {
+            lookups.incrementAndGet();
+            return new Object();
+        }));
+
+        Thread.sleep(100);
+        release.countDown();
+
+        ExecutionException leaderException = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertThat(leaderException.getCause(), instanceOf(IllegalStateException.class));
+
+        ExecutionException followerException = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertThat(followerException.getCause(), sameInstance(leaderException.getCause()));
+        assertThat(lookups.get(), is(0));
+    }
+
+    @Test
+    void shouldNotCacheFinishedLookups() {
+        singleFlight.execute("realm", "group-search", "admins", lookups::incrementAndGet);
+        singleFlight.execute("realm", "group-search", "admins", lookups::incrementAndGet);
+
+        assertThat(lookups.get(), is(2));
+    }
+
+    @Test
+    void shouldSeparateKeys() {
+        Integer first = singleFlight.execute("realm", "client", "app", lookups::incrementAndGet);
+        Integer other = singleFlight.execute("other", "client", "app", lookups::incrementAndGet);
+
+        assertThat(first, is(1));
+        assertThat(other, is(2));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class UserRepositoryTest {
+    private static final String REALM = "users";
+    private static final String USERS_PATH = "/auth/admin/realms/" + REALM + "/users";
+
+    private StandInKeycloakServer server;
+    private AsyncWriteExecutor asyncWriteExecutor;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle(USERS_PATH, this::handleUsers);
+        asyncWriteExecutor = new AsyncWriteExecutor(StandInKeycloakServer.importProperties(null));
+
+        userRepository = new UserRepository(new RealmRepository(server.keycloakProvider()), new SingleFlight(), asyncWriteExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncWriteExecutor.shutdown();
+        server.close();
+    }
+
+    @Test
+    void shouldSearchUserOnlyOnce() {
+        UserRepresentation user = userRepository.findUser(REALM, "John");
+
+        userRepository.getGroups(REALM, user);
+        userRepository.getGroups(REALM, user);
+        userRepository.updateUser(REALM, user);
+
+        assertThat(server.requests(USERS_PATH), is(1));
+        assertThat(server.requests(USERS_PATH + "/john-id/groups"), is(2));
+        assertThat(server.requests(USERS_PATH + "/john-id"), is(1));
+    }
+
+    @Test
+    void shouldTakeIdOfCreatedUserFromLocation() {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername("jane");
+
+        userRepository.create(REALM, user);
+        userRepository.getGroups(REALM, user);
+
+        assertThat(server.requests(USERS_PATH), is(1));
+        assertThat(server.requests(USERS_PATH + "/jane-id/groups"), is(1));
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+
+        if (path.equals(USERS_PATH) && exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().add("Location", server.getUrl() + USERS_PATH + "/jane-id");
+            respond(exchange, 201, "");
+        } else if (path.equals(USERS_PATH)) {
+            respond(exchange, 200, "[{\"id\":\"john-id\",\"username\":\"john\"},{\"id\":\"johnny-id\",\"username\":\"johnny\"}]");
+        } else if (path.endsWith("/groups")) {
+            respond(exchange, 200, "[]");
+        } else {
+            respond(exchange, 204, "");
+        }
+    }
+}
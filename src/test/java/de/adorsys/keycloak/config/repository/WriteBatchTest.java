@@ -0,0 +1,106 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteBatchTest {
+    private final AsyncWriteExecutor asyncWriteExecutor = new AsyncWriteExecutor(importProperties(true));
+
+    @AfterEach
+    void shutdown() {
+        asyncWriteExecutor.shutdown();
+    }
+
+    @Test
+    void shouldAwaitAllWrites() {
+        AtomicInteger writes = new AtomicInteger();
+        WriteBatch batch = new WriteBatch();
+
+        for (int i = 0; i < 20; i++) {
+            batch.add(asyncWriteExecutor.run("write", writes::incrementAndGet));
+        }
+
+        assertDoesNotThrow(() -> batch.await("test"));
+        assertThat(writes.get(), is(20));
+    }
+
+    @Test
+    void shouldThrowSingleFailureWithDescription() {
+        WriteBatch batch = new WriteBatch();
+        batch.add(asyncWriteExecutor.run("Cannot add user 'john' to group 'admins'", () -> {
+            throw new IllegalStateException("conflict");
+        }));
+        batch.add(asyncWriteExecutor.run("write", () -> {
+        }));
+
+        ImportProcessingException thrown = assertThrows(ImportProcessingException.class, () -> batch.await("test"));
+
+        assertThat(thrown.getMessage(), is("Cannot add user 'john' to group 'admins': conflict"));
+    }
+
+    @Test
+    void shouldAggregateFailures() {
+        WriteBatch batch = new WriteBatch();
+        batch.add(failingWrite("Cannot add role 'a'"));
+        batch.add(CompletableFuture.completedFuture(null));
+        batch.add(failingWrite("Cannot add role 'b'"));
+
+        ImportProcessingException thrown = assertThrows(ImportProcessingException.class, () -> batch.await("users of realm 'test'"));
+
+        assertThat(thrown.getMessage(), is("2 of 3 writes failed in users of realm 'test':\n"
+                + " - Cannot add role 'a': failed\n"
+                + " - Cannot add role 'b': failed"));
+        assertThat(thrown.getSuppressed().length, is(1));
+    }
+
+    @Test
+    void shouldFailFastWithoutParallelImport() {
+        AsyncWriteExecutor syncExecutor = new AsyncWriteExecutor(importProperties(false));
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> syncExecutor.run("write", () -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        assertThat(thrown.getMessage(), is("failed"));
+    }
+
+    private CompletableFuture<Void> failingWrite(String description) {
+        return asyncWriteExecutor.run(description, () -> {
+            throw new IllegalStateException("failed");
+        });
+    }
+
+    private static ImportConfigProperties importProperties(boolean parallel) {
+        return new ImportConfigProperties(null, false, "default", true, ImportConfigProperties.ImportFileType.JSON, parallel, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null);
+    }
+}
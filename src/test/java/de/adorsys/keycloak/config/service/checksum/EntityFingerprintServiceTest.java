@@ -0,0 +1,182 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.checksum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.model.UserIterator;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.checksum.EntityFingerprintService.Entity;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+class EntityFingerprintServiceTest {
+    private static final String REALM = "fingerprinted";
+    private static final int USER_COUNT = 1000;
+
+    private final Map<String, String> attributes = new HashMap<>();
+
+    private StandInKeycloakServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/" + REALM, this::handleRealm);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldImportAllEntitiesWithoutStoredFingerprints() {
+        EntityFingerprintService service = service(false);
+        RealmImport realmImport = realmImport("admin");
+
+        service.load(realmImport);
+
+        assertThat(changedUsers(service, realmImport).size(), is(USER_COUNT));
+    }
+
+    @Test
+    void shouldOnlyImportBucketOfChangedEntity() {
+        store(realmImport("admin"));
+        EntityFingerprintService service = service(false);
+
+        RealmImport realmImport = realmImport("admin");
+        realmImport.getUsers().get(42).setEmail("changed@example.com");
+        service.load(realmImport);
+
+        List<UserRepresentation> changedUsers = changedUsers(service, realmImport);
+        assertThat(changedUsers, hasItem(realmImport.getUsers().get(42)));
+        assertThat(changedUsers.size(), lessThan(USER_COUNT / 10));
+        assertThat(service.filterChanged(REALM, Entity.REALM_ROLES, realmImport.getRoles().getRealm(), RoleRepresentation::getName).size(), is(0));
+    }
+
+    @Test
+    void shouldImportAllEntitiesIfDependencyChanged() {
+        store(realmImport("admin"));
+        EntityFingerprintService service = service(false);
+
+        RealmImport realmImport = realmImport("administrator");
+        service.load(realmImport);
+
+        assertThat(changedUsers(service, realmImport).size(), is(USER_COUNT));
+    }
+
+    @Test
+    void shouldSkipStreamedUsersInOtherOrder() {
+        store(realmImport("admin"));
+        EntityFingerprintService service = service(false);
+
+        RealmImport realmImport = realmImport("admin");
+        List<UserRepresentation> users = new ArrayList<>(realmImport.getUsers());
+        Collections.reverse(users);
+        realmImport.setStreamedUsers(() -> UserIterator.of(users));
+        service.load(realmImport);
+
+        assertThat(service.filterChanged(REALM, Entity.USERS, users, UserRepresentation::getUsername).size(), is(0));
+    }
+
+    @Test
+    void shouldImportAllEntitiesIfForced() {
+        store(realmImport("admin"));
+
+        EntityFingerprintService service = service(true);
+        RealmImport realmImport = realmImport("admin");
+        service.load(realmImport);
+
+        assertThat(changedUsers(service, realmImport).size(), is(USER_COUNT));
+    }
+
+    private EntityFingerprintService service(boolean force) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                null, force, "default", true, ImportConfigProperties.ImportFileType.JSON, false, null, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null);
+
+        return new EntityFingerprintService(new RealmRepository(server.keycloakProvider()), importConfigProperties);
+    }
+
+    private void store(RealmImport realmImport) {
+        EntityFingerprintService service = service(false);
+
+        service.load(realmImport);
+        attributes.putAll(service.getAttributes(realmImport));
+        service.drop(REALM);
+    }
+
+    private List<UserRepresentation> changedUsers(EntityFingerprintService service, RealmImport realmImport) {
+        return service.filterChanged(REALM, Entity.USERS, realmImport.getUsers(), UserRepresentation::getUsername);
+    }
+
+    private RealmImport realmImport(String roleName) {
+        RealmImport realmImport = new RealmImport();
+        realmImport.setRealm(REALM);
+
+        RoleRepresentation role = new RoleRepresentation();
+        role.setName(roleName);
+        RolesRepresentation roles = new RolesRepresentation();
+        roles.setRealm(Collections.singletonList(role));
+        realmImport.setRoles(roles);
+
+        List<UserRepresentation> users = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            UserRepresentation user = new UserRepresentation();
+            user.setUsername("user-" + i);
+            user.setEmail("user-" + i + "@example.com");
+            user.setRealmRoles(Collections.singletonList(roleName));
+            users.add(user);
+        }
+        realmImport.setUsers(users);
+
+        return realmImport;
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setId("realm-id");
+        realm.setRealm(REALM);
+        realm.setAttributes(attributes);
+
+        respond(exchange, 200, new ObjectMapper().writeValueAsString(realm));
+    }
+}
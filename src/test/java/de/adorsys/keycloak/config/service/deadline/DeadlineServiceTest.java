@@ -0,0 +1,65 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.deadline;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DeadlineServiceTest {
+    @Test
+    void shouldNotExpireWithoutDeadline() {
+        DeadlineService deadlineService = new DeadlineService(importProperties(null));
+        deadlineService.start();
+
+        assertThat(deadlineService.isExceeded(), is(false));
+        assertDoesNotThrow(() -> deadlineService.check("realm", "users"));
+    }
+
+    @Test
+    void shouldNotExpireBeforeStart() {
+        DeadlineService deadlineService = new DeadlineService(importProperties(Duration.ZERO));
+
+        assertThat(deadlineService.isExceeded(), is(false));
+    }
+
+    @Test
+    void shouldThrowAfterDeadline() throws InterruptedException {
+        DeadlineService deadlineService = new DeadlineService(importProperties(Duration.ofMillis(1)));
+        deadlineService.start();
+        Thread.sleep(10);
+
+        ImportProcessingException thrown = assertThrows(ImportProcessingException.class, () -> deadlineService.check("realm", "users"));
+
+        assertThat(thrown.getMessage(), is("Import deadline of PT0.001S exceeded before stage 'users' of realm 'realm'"));
+    }
+
+    private static ImportConfigProperties importProperties(Duration deadline) {
+        return new ImportConfigProperties(null, false, "default", true, ImportConfigProperties.ImportFileType.JSON, false, deadline, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null);
+    }
+}
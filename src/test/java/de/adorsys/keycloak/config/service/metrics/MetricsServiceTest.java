@@ -0,0 +1,162 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.AdminApiMetrics;
+import de.adorsys.keycloak.config.provider.EndpointMetrics;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCircuitBreaker;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConcurrencyLimit;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakRetry;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import de.adorsys.keycloak.config.test.util.StandInKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.ws.rs.NotFoundException;
+
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.noCompression;
+import static de.adorsys.keycloak.config.test.util.StandInKeycloakServer.respond;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MetricsServiceTest {
+    private static final String REALM = "metrics";
+    private static final String REALM_JSON = "{\"realm\":\"" + REALM + "\"}";
+
+    private final AdminApiMetrics metrics = new AdminApiMetrics();
+
+    private StandInKeycloakServer server;
+    private KeycloakProvider keycloakProvider;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StandInKeycloakServer();
+        server.handle("/auth/admin/realms/" + REALM, this::handleRealm);
+    }
+
+    @AfterEach
+    void stopServer() {
+        keycloakProvider.close();
+        server.close();
+    }
+
+    @Test
+    void shouldRecordCallsPerEndpoint(@TempDir Path tempDir) throws IOException {
+        Path metricsFile = tempDir.resolve("reports/metrics.txt");
+        MetricsService metricsService = createMetricsService(metricsFile);
+
+        Keycloak keycloak = keycloakProvider.get();
+        keycloak.realm(REALM).toRepresentation();
+        keycloak.realm(REALM).toRepresentation();
+        keycloak.realm(REALM).update(new RealmRepresentation());
+        assertThrows(NotFoundException.class, () -> keycloak.realm(REALM).clients().get("1234").toRepresentation());
+
+        List<EndpointMetrics> endpoints = metrics.getEndpoints().stream()
+                .filter(endpoint -> !endpoint.getEndpoint().getEntityType().equals("auth"))
+                .collect(Collectors.toList());
+
+        assertThat(endpoints.size(), is(3));
+
+        EndpointMetrics getRealm = find(endpoints, "GET /");
+        assertThat(getRealm.getEndpoint().getEntityType(), is("realm"));
+        assertThat(getRealm.getCalls(), is(2L));
+        assertThat(getRealm.getErrors(), is(0L));
+        assertThat(getRealm.getResponseBytes(), is(2L * REALM_JSON.length()));
+
+        EndpointMetrics updateRealm = find(endpoints, "PUT /");
+        assertThat(updateRealm.getCalls(), is(1L));
+        assertThat(updateRealm.getRequestBytes(), greaterThan(0L));
+
+        EndpointMetrics getClient = find(endpoints, "GET /clients/{id}");
+        assertThat(getClient.getEndpoint().getEntityType(), is("clients"));
+        assertThat(getClient.getClientErrors(), is(1L));
+
+        metricsService.report();
+
+        String openMetrics = new String(Files.readAllBytes(metricsFile), StandardCharsets.UTF_8);
+        assertThat(openMetrics, containsString("keycloak_admin_calls_total{entity=\"realm\",method=\"GET\",path=\"/\"} 2\n"));
+        assertThat(openMetrics, containsString("keycloak_admin_client_errors_total{entity=\"clients\",method=\"GET\",path=\"/clients/{id}\"} 1\n"));
+        assertThat(openMetrics, containsString("keycloak_admin_call_duration_seconds_bucket{entity=\"realm\",method=\"GET\",path=\"/\",le=\"+Inf\"} 2\n"));
+        assertThat(openMetrics, containsString("# TYPE keycloak_admin_concurrency_limit gauge\n"));
+        assertThat(openMetrics, containsString("keycloak_admin_retries_total 0\n"));
+        assertThat(openMetrics, containsString("keycloak_admin_circuit_breaker_state{keycloak_admin_circuit_breaker_state=\"closed\"} 1\n"));
+        assertThat(openMetrics, endsWith("# EOF\n"));
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        StreamUtils.drain(exchange.getRequestBody());
+
+        String path = exchange.getRequestURI().getPath();
+        if (path.contains("/clients/")) {
+            respond(exchange, 404, "");
+        } else if ("PUT".equals(exchange.getRequestMethod())) {
+            respond(exchange, 204, "");
+        } else {
+            respond(exchange, 200, REALM_JSON);
+        }
+    }
+
+    private MetricsService createMetricsService(Path metricsFile) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                null, false, "default", true, ImportConfigProperties.ImportFileType.JSON, false, null, metricsFile.toString(), ImportConfigProperties.ImportChecksumMode.RAW, false, false, null
+        );
+
+        keycloakProvider = new KeycloakProvider(
+                server.properties(
+                        noCompression(),
+                        new KeycloakConcurrencyLimit(true, 1, null, 0.9, Duration.ofSeconds(5)),
+                        new KeycloakRetry(true, 3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, 0.1, 10),
+                        new KeycloakCircuitBreaker(true, 10, Duration.ofSeconds(30))
+                ),
+                importConfigProperties,
+                new DeadlineService(importConfigProperties),
+                metrics
+        );
+
+        return new MetricsService(metrics, keycloakProvider, importConfigProperties);
+    }
+
+    private static EndpointMetrics find(List<EndpointMetrics> endpoints, String operation) {
+        return endpoints.stream()
+                .filter(endpoint -> endpoint.getEndpoint().getOperation().equals(operation))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No metrics for " + operation));
+    }
+}
@@ -0,0 +1,177 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.test.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakAvailabilityCheck;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCircuitBreaker;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakCompression;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConcurrencyLimit;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConnectionPool;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakRetry;
+import de.adorsys.keycloak.config.provider.AdminApiMetrics;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.deadline.DeadlineService;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Local stand-in for the keycloak admin api, for tests of the admin client without a keycloak container. It serves
+ * tokens for the master realm, all other paths have to be registered by the test. Requests to the registered paths
+ * are recorded, so tests can count them.
+ */
+public class StandInKeycloakServer implements AutoCloseable {
+    private static final String TOKEN_RESPONSE = "{\"access_token\":\"token\",\"expires_in\":300,"
+            + "\"refresh_token\":\"refresh\",\"refresh_expires_in\":1800,\"token_type\":\"bearer\"}";
+
+    private final HttpServer server;
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+
+    private KeycloakProvider keycloakProvider;
+
+    public StandInKeycloakServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/auth/realms/master/protocol/openid-connect/token", exchange -> respond(exchange, 200, TOKEN_RESPONSE));
+        server.start();
+    }
+
+    public void handle(String path, HttpHandler handler) {
+        server.createContext(path, exchange -> {
+            URI uri = exchange.getRequestURI();
+            requests.add(exchange.getRequestMethod() + " " + uri.getPath() + (uri.getQuery() == null ? "" : "?" + uri.getQuery()));
+            handler.handle(exchange);
+        });
+    }
+
+    /**
+     * A provider for this server without compression, concurrency limit, retries and circuit breaker, closed with the
+     * server.
+     */
+    public synchronized KeycloakProvider keycloakProvider() {
+        if (keycloakProvider == null) {
+            ImportConfigProperties importConfigProperties = importProperties(null);
+            keycloakProvider = new KeycloakProvider(
+                    properties(noCompression(), noConcurrencyLimit(), noRetry(), noCircuitBreaker()),
+                    importConfigProperties,
+                    new DeadlineService(importConfigProperties),
+                    new AdminApiMetrics()
+            );
+        }
+
+        return keycloakProvider;
+    }
+
+    /**
+     * All requests to the registered paths.
+     */
+    public int requests() {
+        return requests.size();
+    }
+
+    /**
+     * Requests to the path with any query, or only with the given query if the path has one.
+     */
+    public int requests(String path) {
+        return (int) requests.stream()
+                .map(request -> request.substring(request.indexOf(' ') + 1))
+                .filter(request -> request.equals(path) || !path.contains("?") && request.startsWith(path + "?"))
+                .count();
+    }
+
+    public int requests(String method, String path) {
+        return (int) requests.stream()
+                .filter(request -> request.equals(method + " " + path) || request.startsWith(method + " " + path + "?"))
+                .count();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (keycloakProvider != null) {
+            keycloakProvider.close();
+        }
+        server.stop(0);
+    }
+
+    public static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public KeycloakConfigProperties properties(KeycloakCompression compression, KeycloakConcurrencyLimit concurrencyLimit, KeycloakRetry retry, KeycloakCircuitBreaker circuitBreaker) {
+        return new KeycloakConfigProperties(
+                "master",
+                "admin-cli",
+                getUrl(),
+                "admin",
+                "admin123",
+                true,
+                new KeycloakAvailabilityCheck(false, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                new KeycloakConnectionPool(null, null, Duration.ofSeconds(60), Duration.ofSeconds(30)),
+                compression,
+                concurrencyLimit,
+                retry,
+                circuitBreaker
+        );
+    }
+
+    public static KeycloakCompression noCompression() {
+        return new KeycloakCompression(false, false, DataSize.ofKilobytes(4));
+    }
+
+    public static KeycloakConcurrencyLimit noConcurrencyLimit() {
+        return new KeycloakConcurrencyLimit(false, 1, null, 0.9, Duration.ofSeconds(5));
+    }
+
+    public static KeycloakRetry noRetry() {
+        return new KeycloakRetry(false, 3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, 0.1, 10);
+    }
+
+    public static KeycloakCircuitBreaker noCircuitBreaker() {
+        return new KeycloakCircuitBreaker(false, 10, Duration.ofSeconds(30));
+    }
+
+    public static ImportConfigProperties importProperties(Duration deadline) {
+        return new ImportConfigProperties(null, false, "default", true, ImportConfigProperties.ImportFileType.JSON, false, deadline, null, ImportConfigProperties.ImportChecksumMode.RAW, false, false, null);
+    }
+}
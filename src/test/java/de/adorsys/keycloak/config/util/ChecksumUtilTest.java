@@ -20,10 +20,17 @@
 
 package de.adorsys.keycloak.config.util;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import de.adorsys.keycloak.config.model.RealmImport;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.Map;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ChecksumUtilTest {
@@ -69,4 +76,54 @@ class ChecksumUtilTest {
         String checksum = ChecksumUtil.checksum("{\"property\":\"value\"}");
         assertThat(checksum, is("d7a04cbabf75c2d00df128c13c2b716a69597217351f54e3f3d8b715a28a9395"));
     }
+
+    @Test
+    void shouldIgnoreFormattingKeyOrderAndFileTypeInCanonicalChecksum() throws IOException {
+        RealmImport json = readJson("{\"realm\":\"test\",\"enabled\":true,\"users\":[{\"username\":\"a\"},{\"username\":\"b\"}]}");
+        RealmImport reformattedJson = readJson("{\n  \"users\" : [ { \"username\" : \"b\" }, { \"username\" : \"a\" } ],\n  \"enabled\" : true,\n  \"realm\" : \"test\"\n}\n");
+        RealmImport yaml = new ObjectMapper(new YAMLFactory()).readValue(
+                "# comment\nrealm: test\nusers:\n  - username: a\n  - username: b\nenabled: true\n", RealmImport.class);
+
+        String checksum = ChecksumUtil.canonicalChecksum(json);
+
+        assertThat(ChecksumUtil.canonicalChecksum(reformattedJson), is(checksum));
+        assertThat(ChecksumUtil.canonicalChecksum(yaml), is(checksum));
+    }
+
+    @Test
+    void shouldKeepMeaningfulOrderInCanonicalChecksum() throws IOException {
+        String flow = "{\"realm\":\"test\",\"authenticationFlows\":[{\"alias\":\"flow\",\"authenticationExecutions\":[%s]}]}";
+        String first = "{\"authenticator\":\"first\"}";
+        String second = "{\"authenticator\":\"second\"}";
+
+        RealmImport realmImport = readJson(String.format(flow, first + "," + second));
+        RealmImport reordered = readJson(String.format(flow, second + "," + first));
+
+        assertThat(ChecksumUtil.canonicalChecksum(reordered), is(not(ChecksumUtil.canonicalChecksum(realmImport))));
+    }
+
+    @Test
+    void shouldDetectChangedValueInCanonicalChecksum() throws IOException {
+        RealmImport realmImport = readJson("{\"realm\":\"test\",\"users\":[{\"username\":\"a\",\"email\":\"a@example.com\"}]}");
+        RealmImport changed = readJson("{\"realm\":\"test\",\"users\":[{\"username\":\"a\",\"email\":\"b@example.com\"}]}");
+
+        assertThat(ChecksumUtil.canonicalChecksum(changed), is(not(ChecksumUtil.canonicalChecksum(realmImport))));
+    }
+
+    @Test
+    void shouldNormalizeNumbersAndSetsInCanonicalChecksum() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        Map<?, ?> number = objectMapper.readValue("{\"value\":100}", Map.class);
+        Map<?, ?> sameNumber = objectMapper.readValue("{\"value\":1.00E2}", Map.class);
+        RealmImport set = readJson("{\"realm\":\"test\",\"roles\":{\"realm\":[{\"name\":\"r\",\"composites\":{\"realm\":[\"x\",\"y\",\"z\"]}}]}}");
+        RealmImport sameSet = readJson("{\"realm\":\"test\",\"roles\":{\"realm\":[{\"name\":\"r\",\"composites\":{\"realm\":[\"z\",\"x\",\"y\"]}}]}}");
+
+        assertThat(ChecksumUtil.canonicalChecksum((Object) sameNumber), is(ChecksumUtil.canonicalChecksum((Object) number)));
+        assertThat(ChecksumUtil.canonicalChecksum(sameSet), is(ChecksumUtil.canonicalChecksum(set)));
+    }
+
+    private RealmImport readJson(String json) throws IOException {
+        return new ObjectMapper().readValue(json, RealmImport.class);
+    }
 }